@@ -0,0 +1,133 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap;
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.Coordinates;
+import n.poulsen.campuspaths.model.DLMGraph;
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import n.poulsen.campuspaths.model.DataParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loads the data sets the benchmarks run on. Benchmarks run from the project's base directory,
+ * so the bundled data files are found at their usual relative paths.
+ */
+final class CampusData {
+
+    /** The bundled paths data set */
+    static final String PATHS = "data/campus_paths.tsv";
+
+    /** The bundled buildings data set */
+    static final String BUILDINGS = "data/campus_buildings.tsv";
+
+    /** Not instantiable */
+    private CampusData(){}
+
+    /**
+     * Parses the paths data set
+     *
+     * @param file the paths data set to read
+     * @return the paths in the data set
+     */
+    static List<Path> paths(String file){
+        try{
+            return DataParser.parsePathData(file);
+        }catch (DataParser.MalformedDataException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parses the buildings data set
+     *
+     * @param file the buildings data set to read
+     * @return the buildings in the data set
+     */
+    static List<Building> buildings(String file){
+        try{
+            return DataParser.parseBuildingData(file);
+        }catch (DataParser.MalformedDataException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds a campus map the way CampusMapService does
+     *
+     * @param buildings the buildings of the map
+     * @param paths the paths of the map
+     * @return a map of the given buildings and paths
+     */
+    static CampusMap map(List<Building> buildings, List<Path> paths){
+        return CampusMap.of(buildings, paths);
+    }
+
+    /**
+     * Builds the graph CampusMap holds, directly
+     *
+     * @param paths the paths of the graph
+     * @return a graph with an edge in each direction for every path
+     */
+    static DLMGraph<Coordinates, Double> graph(List<Path> paths){
+        DLMGraph<Coordinates, Double> g = new DLMGraph<>();
+        for (Path p: paths){
+            Node<Coordinates> s = new Node<>(p.getOrigin());
+            Node<Coordinates> d = new Node<>(p.getDestination());
+            g.addNode(s);
+            g.addNode(d);
+            g.addEdge(new DEdge<>(s, d, p.getDistance()));
+            g.addEdge(new DEdge<>(d, s, p.getDistance()));
+        }
+        return g;
+    }
+
+    /**
+     * Builds the same graph as graph(paths), with nodes and edges labeled by strings, for the
+     * breadth-first search of DLMGraph.shortestPath
+     *
+     * @param paths the paths of the graph
+     * @return a graph with an edge in each direction for every path
+     */
+    static DLMGraph<String, String> stringGraph(List<Path> paths){
+        DLMGraph<String, String> g = new DLMGraph<>();
+        for (Path p: paths){
+            Node<String> s = new Node<>(label(p.getOrigin()));
+            Node<String> d = new Node<>(label(p.getDestination()));
+            g.addNode(s);
+            g.addNode(d);
+            g.addEdge(new DEdge<>(s, d, Double.toString(p.getDistance())));
+            g.addEdge(new DEdge<>(d, s, Double.toString(p.getDistance())));
+        }
+        return g;
+    }
+
+    /**
+     * Returns the label of the node at the given coordinates in stringGraph
+     *
+     * @param c the coordinates of a node
+     * @return the label of the node at c
+     */
+    static String label(Coordinates c){
+        return c.getX() + "," + c.getY();
+    }
+
+    /**
+     * Draws random pairs of buildings, the same ones on every run
+     *
+     * @param buildings the buildings to draw from
+     * @param count the number of pairs to draw
+     * @return count pairs of buildings, as two-element arrays
+     */
+    static List<Building[]> randomPairs(List<Building> buildings, int count){
+        Random r = new Random(42);
+        List<Building[]> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            pairs.add(new Building[]{buildings.get(r.nextInt(buildings.size())), buildings.get(r.nextInt(buildings.size()))});
+        }
+        return pairs;
+    }
+
+}
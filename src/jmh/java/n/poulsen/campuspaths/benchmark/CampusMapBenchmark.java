@@ -0,0 +1,94 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap;
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks CampusMap.shortestPath with every routing algorithm, between random pairs of buildings
+ * and between the two buildings furthest apart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CampusMapBenchmark {
+
+    /** The number of random pairs cycled through */
+    private static final int PAIRS = 1024;
+
+    /** The algorithm routes are searched with */
+    @Param({"DIJKSTRA", "ASTAR", "BIDIRECTIONAL", "CONTRACTION_HIERARCHIES"})
+    public RoutingAlgorithm algorithm;
+
+    /** The campus map */
+    private CampusMap map;
+
+    /** The abbreviated names of the start and destination buildings of the pairs */
+    private String[][] pairs;
+
+    /** The abbreviated names of the two buildings with the longest shortest path between them */
+    private String[] furthest;
+
+    /** The index of the next pair to route, for each benchmark thread */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /** The index of the next pair */
+        private int next;
+
+        /** @return the index of the next pair, moving on to the one after */
+        int next(){
+            next = (next + 1) % PAIRS;
+            return next;
+        }
+
+    }
+
+    @Setup
+    public void setUp(){
+        List<Building> buildings = CampusData.buildings(CampusData.BUILDINGS);
+        map = CampusData.map(buildings, CampusData.paths(CampusData.PATHS));
+        map.prepare(algorithm);
+        List<Building[]> drawn = CampusData.randomPairs(buildings, PAIRS);
+        pairs = new String[PAIRS][];
+        for (int i = 0; i < PAIRS; i++){
+            pairs[i] = new String[]{drawn.get(i)[0].getShortName(), drawn.get(i)[1].getShortName()};
+        }
+        double longest = -1;
+        for (Building b1: buildings){
+            for (Building b2: buildings){
+                List<Path> path = map.shortestPath(b1.getShortName(), b2.getShortName());
+                if (path == null){
+                    continue;
+                }
+                double length = 0;
+                for (Path p: path){
+                    length += p.getDistance();
+                }
+                if (length > longest){
+                    longest = length;
+                    furthest = new String[]{b1.getShortName(), b2.getShortName()};
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Path> randomPair(Cursor c){
+        String[] p = pairs[c.next()];
+        return map.shortestPath(p[0], p[1], algorithm);
+    }
+
+    @Benchmark
+    public List<Path> worstCase(){
+        return map.shortestPath(furthest[0], furthest[1], algorithm);
+    }
+
+}
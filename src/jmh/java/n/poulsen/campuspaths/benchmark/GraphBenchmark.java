@@ -0,0 +1,86 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.Coordinates;
+import n.poulsen.campuspaths.model.DLMGraph;
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the searches of DLMGraph on the campus graph, between random pairs of buildings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    /** The number of random pairs cycled through */
+    private static final int PAIRS = 1024;
+
+    /** The campus graph */
+    private DLMGraph<Coordinates, Double> graph;
+
+    /** The campus graph, labeled with strings */
+    private DLMGraph<String, String> stringGraph;
+
+    /** The start and destination nodes of the pairs, in graph */
+    private Node<Coordinates>[][] pairs;
+
+    /** The start and destination nodes of the pairs, in stringGraph */
+    private Node<String>[][] stringPairs;
+
+    /** The index of the next pair to route, for each benchmark thread */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /** The index of the next pair */
+        private int next;
+
+        /** @return the index of the next pair, moving on to the one after */
+        int next(){
+            next = (next + 1) % PAIRS;
+            return next;
+        }
+
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp(){
+        List<Path> paths = CampusData.paths(CampusData.PATHS);
+        List<Building> buildings = CampusData.buildings(CampusData.BUILDINGS);
+        graph = CampusData.graph(paths);
+        stringGraph = CampusData.stringGraph(paths);
+        for (Building b: buildings){
+            graph.addNode(new Node<>(b.getLocation()));
+            stringGraph.addNode(new Node<>(CampusData.label(b.getLocation())));
+        }
+        List<Building[]> drawn = CampusData.randomPairs(buildings, PAIRS);
+        pairs = new Node[PAIRS][];
+        stringPairs = new Node[PAIRS][];
+        for (int i = 0; i < PAIRS; i++){
+            Building[] p = drawn.get(i);
+            pairs[i] = new Node[]{new Node<>(p[0].getLocation()), new Node<>(p[1].getLocation())};
+            stringPairs[i] = new Node[]{new Node<>(CampusData.label(p[0].getLocation())), new Node<>(CampusData.label(p[1].getLocation()))};
+        }
+    }
+
+    @Benchmark
+    public List<DEdge<Coordinates, Double>> dijkstra(Cursor c){
+        Node<Coordinates>[] p = pairs[c.next()];
+        return DLMGraph.dijkstra(graph, p[0], p[1]);
+    }
+
+    @Benchmark
+    public List<DEdge<String, String>> breadthFirstSearch(Cursor c){
+        Node<String>[] p = stringPairs[c.next()];
+        return DLMGraph.shortestPath(stringGraph, p[0], p[1]);
+    }
+
+}
@@ -0,0 +1,126 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.Coordinates;
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hash tables DLMGraph is built from, filled with the nodes and edges of the campus
+ * graph: an edge in each direction for every path. Run with the gc profiler (the default) to see
+ * that hashing and comparing nodes and edges allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmark {
+
+    /** The distinct nodes of the campus graph */
+    private List<Node<Coordinates>> nodes;
+
+    /** Copies of the nodes, equal to them but not the same objects, to look them up with */
+    private List<Node<Coordinates>> nodeCopies;
+
+    /** The edges of the campus graph */
+    private List<DEdge<Coordinates, Double>> edges;
+
+    /** Copies of the edges, equal to them but not the same objects, to look them up with */
+    private List<DEdge<Coordinates, Double>> edgeCopies;
+
+    /** A map from every node to its index, as DLMGraph's adjacency list maps nodes */
+    private Map<Node<Coordinates>, Integer> nodeMap;
+
+    /** A set of every edge, as DLMGraph's adjacency sets hold edges */
+    private Set<DEdge<Coordinates, Double>> edgeSet;
+
+    @Setup
+    public void setUp(){
+        Set<Node<Coordinates>> distinct = new HashSet<>();
+        edges = new ArrayList<>();
+        edgeCopies = new ArrayList<>();
+        for (Path p: CampusData.paths(CampusData.PATHS)){
+            Node<Coordinates> s = new Node<>(p.getOrigin());
+            Node<Coordinates> d = new Node<>(p.getDestination());
+            distinct.add(s);
+            distinct.add(d);
+            edges.add(new DEdge<>(s, d, p.getDistance()));
+            edges.add(new DEdge<>(d, s, p.getDistance()));
+            edgeCopies.add(new DEdge<>(copy(s), copy(d), p.getDistance()));
+            edgeCopies.add(new DEdge<>(copy(d), copy(s), p.getDistance()));
+        }
+        nodes = new ArrayList<>(distinct);
+        nodeCopies = new ArrayList<>();
+        for (Node<Coordinates> n: nodes){
+            nodeCopies.add(copy(n));
+        }
+        nodeMap = buildNodeMap();
+        edgeSet = buildEdgeSet();
+    }
+
+    /**
+     * Returns a node equal to another, sharing nothing with it
+     *
+     * @param n the node to copy
+     * @return a new node at new coordinates equal to n's
+     */
+    private static Node<Coordinates> copy(Node<Coordinates> n){
+        return new Node<>(new Coordinates(n.getLabel().getX(), n.getLabel().getY()));
+    }
+
+    @Benchmark
+    public Map<Node<Coordinates>, Integer> buildNodeMap(){
+        Map<Node<Coordinates>, Integer> map = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++){
+            map.put(nodes.get(i), i);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Set<DEdge<Coordinates, Double>> buildEdgeSet(){
+        return new HashSet<>(edges);
+    }
+
+    @Benchmark
+    public int lookUpNodes(){
+        int found = 0;
+        for (Node<Coordinates> n: nodeCopies){
+            if (nodeMap.containsKey(n)){
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int lookUpEdges(){
+        int found = 0;
+        for (DEdge<Coordinates, Double> e: edgeCopies){
+            if (edgeSet.contains(e)){
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int hashEdges(){
+        int h = 0;
+        for (DEdge<Coordinates, Double> e: edges){
+            h += e.hashCode();
+        }
+        return h;
+    }
+
+}
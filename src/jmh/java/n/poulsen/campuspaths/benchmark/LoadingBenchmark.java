@@ -0,0 +1,55 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap;
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing the data sets and building a campus map from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadingBenchmark {
+
+    /** The parsed paths */
+    private List<Path> paths;
+
+    /** The parsed buildings */
+    private List<Building> buildings;
+
+    @Setup
+    public void setUp(){
+        paths = CampusData.paths(CampusData.PATHS);
+        buildings = CampusData.buildings(CampusData.BUILDINGS);
+    }
+
+    @Benchmark
+    public List<Path> parsePaths(){
+        return CampusData.paths(CampusData.PATHS);
+    }
+
+    @Benchmark
+    public List<Building> parseBuildings(){
+        return CampusData.buildings(CampusData.BUILDINGS);
+    }
+
+    @Benchmark
+    public CampusMap addPaths(){
+        CampusMap map = new CampusMap();
+        map.addAll(buildings, paths);
+        return map;
+    }
+
+    @Benchmark
+    public CampusMap bulkLoad(){
+        return CampusData.map(buildings, paths);
+    }
+
+}
@@ -0,0 +1,114 @@
+package n.poulsen.campuspaths.benchmark;
+
+import n.poulsen.campuspaths.model.CampusMap;
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
+import n.poulsen.campuspaths.model.SyntheticCampus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing, building and querying generated campuses of growing size, to show how each
+ * scales with the number of paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+    /** The number of random pairs cycled through */
+    private static final int PAIRS = 256;
+
+    /** The topology of the generated campus: grid, random (geometric) or tiled */
+    @Param({"grid", "random", "tiled"})
+    public String topology;
+
+    /** The approximate number of nodes of the generated campus */
+    @Param({"10000", "100000"})
+    public int nodes;
+
+    /** The generated campus */
+    private SyntheticCampus campus;
+
+    /** The generated campus, as a map */
+    private CampusMap map;
+
+    /** The files the generated campus is written to */
+    private File pathsFile, buildingsFile;
+
+    /** The abbreviated names of the start and destination buildings of the pairs */
+    private String[][] pairs;
+
+    /** The index of the next pair to route, for each benchmark thread */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /** The index of the next pair */
+        private int next;
+
+        /** @return the index of the next pair, moving on to the one after */
+        int next(){
+            next = (next + 1) % PAIRS;
+            return next;
+        }
+
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (topology){
+            case "grid":
+                int side = (int) Math.sqrt(nodes);
+                campus = SyntheticCampus.grid(side, side, 100, 42);
+                break;
+            case "random":
+                campus = SyntheticCampus.randomGeometric(nodes, 6, 100, 42);
+                break;
+            default:
+                // The bundled campus has about 2000 nodes
+                int copies = (int) Math.ceil(Math.sqrt(nodes / 2000.0));
+                campus = SyntheticCampus.tiled(CampusData.paths(CampusData.PATHS), CampusData.buildings(CampusData.BUILDINGS), copies, copies);
+        }
+        pathsFile = File.createTempFile("paths", ".tsv");
+        buildingsFile = File.createTempFile("buildings", ".tsv");
+        campus.write(pathsFile.getPath(), buildingsFile.getPath());
+        map = campus.toCampusMap();
+        map.prepare(RoutingAlgorithm.DIJKSTRA);
+        List<Building> buildings = campus.getBuildings();
+        List<Building[]> drawn = CampusData.randomPairs(buildings, PAIRS);
+        pairs = new String[PAIRS][];
+        for (int i = 0; i < PAIRS; i++){
+            pairs[i] = new String[]{drawn.get(i)[0].getShortName(), drawn.get(i)[1].getShortName()};
+        }
+    }
+
+    @TearDown
+    public void tearDown(){
+        pathsFile.delete();
+        buildingsFile.delete();
+    }
+
+    @Benchmark
+    public List<Path> parse(){
+        return CampusData.paths(pathsFile.getPath());
+    }
+
+    @Benchmark
+    public CampusMap build(){
+        return campus.toCampusMap();
+    }
+
+    @Benchmark
+    public List<Path> query(Cursor c){
+        String[] p = pairs[c.next()];
+        return map.shortestPath(p[0], p[1]);
+    }
+
+}
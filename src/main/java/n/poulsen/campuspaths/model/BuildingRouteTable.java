@@ -0,0 +1,168 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import java.util.*;
+
+/**
+ * <b>BuildingRouteTable</b> is an immutable table of the shortest routes between every ordered
+ * pair of buildings of a campus map, computed in advance so that routing between buildings is a
+ * lookup. For every pair it stores the route's distance and its edge ids in the map's routing
+ * graph (from which the nodes of the route follow), all routes being packed into a single array.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield buildings: the abbreviated names of the buildings the table covers
+ *   @spec.specfield routes: the shortest route from b1 to b2, or none, for all b1, b2 in buildings
+ */
+public final class BuildingRouteTable {
+
+    /** The routing graph the edge ids stored refer to */
+    private final CompactGraph graph;
+
+    /** Maps the abbreviated name of every building covered to its row and column in the table */
+    private final Map<String, Integer> index;
+
+    /** The number of buildings covered */
+    private final int size;
+
+    /** The distance of the route from building i to building j at i * size + j, or infinity if there is none */
+    private final double[] distances;
+
+    /** The edges of the route for pair p are edges[offsets[p]] to edges[offsets[p + 1] - 1] */
+    private final int[] offsets;
+
+    /** The edge ids of all routes, one after the other */
+    private final int[] edges;
+
+    // Abstraction function:
+    //    BuildingRouteTable t represents the table whose entry for buildings b1 and b2, where
+    //    p = index.get(b1) * size + index.get(b2), is the route going through the edges of graph
+    //    edges[offsets[p]], ..., edges[offsets[p + 1] - 1], of total weight distances[p], if
+    //    distances[p] is finite, and no route otherwise.
+    //
+    // Representation invariant for every BuildingRouteTable t:
+    //    index.size() == size &&
+    //    distances.length == size * size && offsets.length == size * size + 1 &&
+    //    offsets[size * size] == edges.length &&
+    //    forall p: offsets[p] <= offsets[p + 1]
+
+    /**
+     * @param graph the routing graph the routes were found in
+     * @param names the abbreviated names of the buildings covered
+     * @param routes routes[i][j] is the route from names.get(i) to names.get(j), or null if there is none
+     * @spec.requires routes is a names.size() by names.size() array
+     * @spec.effects Constructs a new table holding the given routes
+     */
+    BuildingRouteTable(CompactGraph graph, List<String> names, Route[][] routes){
+        this.graph = graph;
+        this.size = names.size();
+        this.index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++){
+            index.put(names.get(i), i);
+        }
+        distances = new double[size * size];
+        offsets = new int[size * size + 1];
+        for (int i = 0; i < size; i++){
+            for (int j = 0; j < size; j++){
+                int p = i * size + j;
+                Route r = routes[i][j];
+                distances[p] = r == null ? Double.POSITIVE_INFINITY : r.getDistance();
+                offsets[p + 1] = offsets[p] + (r == null ? 0 : r.length());
+            }
+        }
+        edges = new int[offsets[size * size]];
+        for (int i = 0; i < size; i++){
+            for (int j = 0; j < size; j++){
+                Route r = routes[i][j];
+                if (r != null){
+                    for (int k = 0, e = offsets[i * size + j]; k < r.length(); k++, e++){
+                        edges[e] = r.edge(k);
+                    }
+                }
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Returns the number of buildings this table covers.
+     *
+     * @return the number of buildings this table covers
+     */
+    public int numberOfBuildings(){
+        return size;
+    }
+
+    /**
+     * Returns the routing graph this table was computed on.
+     *
+     * @return the routing graph the stored routes refer to
+     */
+    CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Returns the shortest path between two buildings, as stored in this table
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @return the shortest path between b1 and b2, or null if no path exists or one of the buildings isn't in the table
+     */
+    public List<Path> shortestPath(String b1, String b2){
+        Integer i = index.get(b1);
+        Integer j = index.get(b2);
+        if (i == null || j == null){
+            return null;
+        }
+        int p = i * size + j;
+        if (distances[p] == Double.POSITIVE_INFINITY){
+            return null;
+        }
+        List<Path> result = new ArrayList<>(offsets[p + 1] - offsets[p]);
+        for (int k = offsets[p]; k < offsets[p + 1]; k++){
+            int e = edges[k];
+            result.add(new Path(graph.coordinates(graph.source(e)), graph.coordinates(graph.target(e)), graph.weight(e)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of the shortest path between two buildings, as stored in this table
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @return the length of the shortest path between b1 and b2, infinity if there is none, or NaN if one
+     *    of the buildings isn't in the table
+     */
+    public double distance(String b1, String b2){
+        Integer i = index.get(b1);
+        Integer j = index.get(b2);
+        if (i == null || j == null){
+            return Double.NaN;
+        }
+        return distances[i * size + j];
+    }
+
+    /**
+     * Returns an estimate of the memory used by this table, not counting the routing graph.
+     *
+     * @return an estimate of the number of bytes used by this table
+     */
+    public long memoryFootprint(){
+        // Arrays, plus about 64 bytes per entry of the index (entry, boxed id and share of the table)
+        return 8L * distances.length + 4L * offsets.length + 4L * edges.length + 64L * size;
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(index.size() == size);
+        assert(distances.length == size * size);
+        assert(offsets.length == size * size + 1);
+        assert(offsets[size * size] == edges.length);
+    }
+
+}
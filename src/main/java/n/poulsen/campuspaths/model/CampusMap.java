@@ -1,48 +1,127 @@
 package n.poulsen.campuspaths.model;
 
 import n.poulsen.campuspaths.model.DLMGraph.*;
+import java.io.IOException;
 import java.util.*;
+import java.util.stream.IntStream;
 
-import static n.poulsen.campuspaths.model.DLMGraph.dijkstra;
 import static n.poulsen.campuspaths.model.DataParser.parseBuildingData;
-import static n.poulsen.campuspaths.model.DataParser.parsePathData;
+import static n.poulsen.campuspaths.model.DataParser.streamPathData;
 
 /**
  * <b>Campus</b> represents a campus's map, through its
  * buildings and paths.
+ *
+ * A CampusMap can be read by any number of threads while it is modified. Queries are answered from
+ * an immutable version of the map, published through a volatile field, so they never take a lock.
+ * Modifications are applied one at a time to a private mutable copy, and the writer that made them
+ * builds and publishes the next version before returning: once per call to addBuilding or addPath,
+ * and once for a whole batch with addAll or the load methods. Until then, queries keep being
+ * answered from the previous version.
  */
 public class CampusMap {
 
     /** When TRUE, this variable enables checkReps() at the beginning and end of every method*/
     private final static boolean DEBUGGING = false;
 
-    /** A DLMGraph representing all campus paths */
+    /**
+     * A DLMGraph representing all campus paths, or null until this map is first modified if it was
+     * loaded from a snapshot or built in bulk, so that maps that are never modified don't keep it
+     * next to their routing graph. Only accessed while holding the lock of this.
+     */
     private DLMGraph<Coordinates, Double> campusMap;
 
-    /** Maps building's abbreviated name to their other attributes */
-    private Map<String, Building> buildings;
+    /** Maps building's abbreviated name to their other attributes. Only accessed while holding the lock of this. */
+    private final Map<String, Building> buildings;
+
+    /** Whether a node was added to campusMap since the last version was published */
+    private boolean nodesChanged;
+
+    /** The number of times this map was modified. Only accessed while holding the lock of this. */
+    private long version;
+
+    /** The latest version of this map built, which queries are answered from */
+    private volatile MapVersion published;
 
     // Abstraction function:
     //    CampusMap m represents a campus map. All buildings in the map have their abbreviated name as a key of the buildings map,
     //    and the node representing the building is buildings.get(shortName), and also a node in campusMap. The full name of all
     //    buildings is the value associated to the key that is the abbreviated name of the building in shortToLongName.
+    //    The map as of modification number published.version is published.
     //
-    //
-    // Representation invariant for every DLMGraph g:
-    //    campusMap != null &&
-    //    buildings != null &&
+    // Representation invariant for every CampusMap m:
+    //    (campusMap != null || version == published.version) &&
+    //    buildings != null && published != null &&
+    //    published.version <= version, equal whenever no writer holds the lock of this &&
     //    forall DEdge e in campusMap: e.getLabel() > 0
     //    forall (s, b) in buildings: s != null && b != null
     //    forall (s, b) in buildings: campusMap.contains(b.location)
+    //    !nodesChanged implies published.graph has the same nodes as campusMap
     //
 
     /** @spec.effects Constructs a new empty campus map */
     public CampusMap(){
         campusMap = new DLMGraph<>();
         buildings = new HashMap<>();
+        published = new MapVersion(0, buildings, new CompactGraph(campusMap), null);
         checkRep();
     }
 
+    /**
+     * @param graph the routing graph of the map
+     * @param hierarchy the contraction hierarchy of graph, or null if it wasn't built
+     * @param buildings the buildings of the map
+     * @spec.requires graph != null && buildings != null && every building is at a node of graph
+     * @spec.requires hierarchy == null || hierarchy.graph() == graph
+     * @spec.effects Constructs a new campus map with the given buildings and the nodes and edges of
+     *    graph, without building a DLMGraph of them until the map is modified
+     */
+    CampusMap(CompactGraph graph, ContractionHierarchy hierarchy, Collection<Building> buildings){
+        this.buildings = new HashMap<>();
+        for (Building b: buildings){
+            this.buildings.put(b.shortName, b);
+        }
+        published = new MapVersion(0, this.buildings, graph, hierarchy);
+        checkRep();
+    }
+
+    /**
+     * @param graph the graph of the map's paths
+     * @param buildings the buildings of the map, by abbreviated name
+     * @spec.requires graph != null && buildings != null && every building is at a node of graph
+     * @spec.effects Constructs a new campus map of the given graph and buildings. It takes
+     *    ownership of buildings, and keeps only a compact copy of graph.
+     */
+    private CampusMap(DLMGraph<Coordinates, Double> graph, Map<String, Building> buildings){
+        this.buildings = buildings;
+        published = new MapVersion(0, buildings, new CompactGraph(graph), null);
+        // graph() rebuilds graph from the published version if this map is ever modified
+        campusMap = null;
+        checkRep();
+    }
+
+    /**
+     * Returns a campus map of a batch of buildings and paths. The map is the same as a new map that
+     * every building and then every path were added to, one at a time, but it is built faster: the
+     * graph is sized for the batch up front and filled in a single pass.
+     *
+     * @param buildings the buildings of the map
+     * @param paths the paths of the map
+     * @spec.requires buildings != null && paths != null && none of their elements is null
+     * @return a new campus map of the given buildings and paths. When buildings share an
+     *    abbreviated name, the last one is kept.
+     */
+    public static CampusMap of(Collection<Building> buildings, Collection<Path> paths){
+        Loader loader = new Loader(paths.size());
+        for (Building b: buildings){
+            loader.addBuilding(b);
+        }
+        for (Path p: paths){
+            loader.addPath(p);
+        }
+        return loader.build();
+    }
+
     /**
      * Reads the campus buildings dataset. Each line of the input file contains the building's abbreviated
      * name, followed by the buildings full name, followed by a rational value for the building's x coordinate
@@ -56,17 +135,20 @@ public class CampusMap {
      * @spec.modifies this
      * @throws IllegalArgumentException if the data in the file given is not correctly formatted
      */
-    public void loadBuildingData(String filePath){
+    public synchronized void loadBuildingData(String filePath){
         checkRep();
         try{
             List<Building> allB = parseBuildingData(filePath);
             for (Building b: allB){
-                if (!contains(b.shortName)){
-                    addBuilding(b);
+                if (!buildings.containsKey(b.shortName)){
+                    insertBuilding(b);
                 }
             }
         }catch (DataParser.MalformedDataException e){
             throw new IllegalArgumentException("Unable to parse data: not in correct format", e);
+        }finally{
+            // Whatever was added before a failure is published, as it was when buildings were published one by one
+            publish();
         }
         checkRep();
     }
@@ -84,15 +166,17 @@ public class CampusMap {
      * @spec.modifies this
      * @throws IllegalArgumentException if the data in the file given is not correctly formatted
      */
-    public void loadPathData(String filePath){
+    public synchronized void loadPathData(String filePath){
         checkRep();
         try{
-            List<Path> allP = parsePathData(filePath);
-            for (Path p: allP){
-                addPath(p);
-            }
+            streamPathData(filePath, (originX, originY, destinationX, destinationY, distance) ->
+                    insertPath(new Path(new Coordinates(originX, originY), new Coordinates(destinationX, destinationY), distance)));
         }catch (DataParser.MalformedDataException e){
             throw new IllegalArgumentException("Unable to parse data: not in correct format", e);
+        }catch (IOException e){
+            throw new IllegalArgumentException("Unable to read data", e);
+        }finally{
+            publish();
         }
         checkRep();
     }
@@ -106,14 +190,13 @@ public class CampusMap {
      * @spec.effects Adds the Building b to this campus map
      * @spec.modifies this
      */
-    public void addBuilding(Building b){
+    public synchronized void addBuilding(Building b){
         checkRep();
         if (b == null){
             throw new NullPointerException("Null argument");
         }
-        Node<Coordinates> n = new Node<>(b.location);
-        buildings.put(b.shortName, b);
-        campusMap.addNode(n);
+        insertBuilding(b);
+        publish();
         checkRep();
     }
 
@@ -125,19 +208,85 @@ public class CampusMap {
      * @spec.effects Adds the Path p to this campus map
      * @spec.modifies this
      */
-    public void addPath(Path p){
+    public synchronized void addPath(Path p){
+        checkRep();
+        insertPath(p);
+        publish();
+        checkRep();
+    }
+
+    /**
+     * Adds a batch of buildings and paths to this campus map, making them visible to queries all
+     * at once, and building the next version only once for the whole batch
+     *
+     * @param newBuildings the buildings to add to this CampusMap
+     * @param paths the paths to add to this CampusMap
+     * @spec.requires newBuildings != null && paths != null && none of their elements is null
+     * @spec.effects Adds every building of newBuildings, then every path of paths, to this campus map
+     * @spec.modifies this
+     */
+    public synchronized void addAll(Collection<Building> newBuildings, Collection<Path> paths){
+        checkRep();
+        try{
+            for (Building b: newBuildings){
+                insertBuilding(b);
+            }
+            for (Path p: paths){
+                insertPath(p);
+            }
+        }finally{
+            publish();
+        }
         checkRep();
+    }
+
+    /**
+     * Adds a building to the mutable copy of this map, without publishing it
+     *
+     * @param b the building to add
+     * @spec.requires b != null && the lock of this is held
+     * @spec.modifies this
+     */
+    private void insertBuilding(Building b){
+        Node<Coordinates> n = new Node<>(b.location);
+        buildings.put(b.shortName, b);
+        if (graph().addNode(n)){
+            nodesChanged = true;
+        }
+        version++;
+    }
+
+    /**
+     * Adds a path to the mutable copy of this map, without publishing it
+     *
+     * @param p the path to add
+     * @spec.requires p != null && the lock of this is held
+     * @spec.modifies this
+     */
+    private void insertPath(Path p){
+        DLMGraph<Coordinates, Double> graph = graph();
         Node<Coordinates> s = new Node<>(p.getOrigin());
-        if (!campusMap.contains(s)) {
-            campusMap.addNode(s);
+        if (!graph.contains(s)) {
+            graph.addNode(s);
         }
         Node<Coordinates> d = new Node<>(p.getDestination());
-        if (!campusMap.contains(d)) {
-            campusMap.addNode(d);
+        if (!graph.contains(d)) {
+            graph.addNode(d);
         }
-        campusMap.addEdge(new DEdge<>(s, d, p.distance));
-        campusMap.addEdge(new DEdge<>(d, s, p.distance));
-        checkRep();
+        graph.addEdge(new DEdge<>(s, d, p.distance));
+        graph.addEdge(new DEdge<>(d, s, p.distance));
+        nodesChanged = true;
+        version++;
+    }
+
+    /**
+     * Returns the number of times this map had been modified when its latest version was
+     * published. Results computed from this map remain valid as long as its version doesn't change.
+     *
+     * @return the number of modifications reflected by the version queries are answered from
+     */
+    public long version(){
+        return published.version;
     }
 
     /**
@@ -148,8 +297,7 @@ public class CampusMap {
      * @return true iff the b has been added to this campus map
      */
     public boolean contains(String b){
-        checkRep();
-        return buildings.containsKey(b);
+        return current().buildings.containsKey(b);
     }
 
     /**
@@ -161,8 +309,7 @@ public class CampusMap {
      * @return the building in this map with abbreviated name b, or null if none exists
      */
     public Building getBuilding(String b){
-        checkRep();
-        return buildings.get(b);
+        return current().buildings.get(b);
     }
 
     /**
@@ -171,12 +318,11 @@ public class CampusMap {
      * @return a list of all buildings in this map
      */
     public List<Building> listBuildings(){
-        checkRep();
+        Map<String, Building> buildings = current().buildings;
         List<Building> result = new ArrayList<>();
         for (String s: buildings.keySet()){
             result.add(buildings.get(s));
         }
-        checkRep();
         return result;
     }
 
@@ -192,44 +338,718 @@ public class CampusMap {
      * @return the shortest path between b1 and b2, or null if no path exists or one of the buildings isn't in the map
      */
     public List<Path> shortestPath(String b1, String b2){
-        checkRep();
-        if (b1 == null || b2 == null){
+        return shortestPath(b1, b2, RoutingAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Returns the shortest path between two buildings in this campus map, found using the given algorithm
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @param algorithm the search used to find the path
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @spec.requires algorithm != null
+     * @spec.requires this.contains(b1)
+     * @spec.requires this.contains(b2)
+     * @return the shortest path between b1 and b2, or null if no path exists or one of the buildings isn't in the map
+     */
+    public List<Path> shortestPath(String b1, String b2, RoutingAlgorithm algorithm){
+        MapVersion v = current();
+        return toPaths(v.graph, v.findRoute(b1, b2, algorithm));
+    }
+
+    /**
+     * Returns the shortest path between two arbitrary points of this campus map, found using the
+     * given algorithm. Each point is snapped to the nearest point of the map's paths, which may lie
+     * in the middle of a path, and the returned path runs between those two points: its first and
+     * last parts may be parts of a path of this map.
+     *
+     * @param from the point at which the path starts
+     * @param to the point at which the path ends
+     * @param algorithm the search used to find the path
+     * @spec.requires from != null
+     * @spec.requires to != null
+     * @spec.requires algorithm != null
+     * @return the shortest path between the points of the map's paths nearest to from and to, or
+     *    null if no path exists or this map has no paths
+     */
+    public List<Path> shortestPath(Coordinates from, Coordinates to, RoutingAlgorithm algorithm){
+        if (from == null || to == null || algorithm == null){
             throw new NullPointerException();
         }
-        Building start = buildings.get(b1);
-        Building dest = buildings.get(b2);
-        // If either the start or dest isn't a building in our map, return null
+        MapVersion v = current();
+        SegmentIndex index = v.segmentIndex();
+        EdgeSnap start = index.nearest(from.getX(), from.getY());
+        EdgeSnap dest = index.nearest(to.getX(), to.getY());
         if (start == null || dest == null){
             return null;
         }
-        List<DEdge<Coordinates, Double>> path = dijkstra(campusMap, new Node<>(start.location), new Node<>(dest.location));
-        if (path == null){
+        return v.findPath(start, dest, algorithm);
+    }
+
+    /**
+     * Returns the shortest path from an arbitrary point of this campus map to a building, found
+     * using the given algorithm. The point is snapped to the nearest point of the map's paths, which
+     * may lie in the middle of a path, and the returned path runs from there to the building's own
+     * node: its first part may be part of a path of this map.
+     *
+     * @param from the point at which the path starts
+     * @param b the building at which the path ends abbreviated name
+     * @param algorithm the search used to find the path
+     * @spec.requires from != null
+     * @spec.requires b != null
+     * @spec.requires algorithm != null
+     * @return the shortest path from the point of the map's paths nearest to from to b, or null if
+     *    no path exists, b isn't in the map or this map has no paths
+     */
+    public List<Path> shortestPath(Coordinates from, String b, RoutingAlgorithm algorithm){
+        if (from == null || b == null || algorithm == null){
+            throw new NullPointerException();
+        }
+        MapVersion v = current();
+        Building dest = v.buildings.get(b);
+        if (dest == null){
             return null;
         }
-        List<Path> result = new ArrayList<>();
-        for(DEdge<Coordinates, Double> e: path){
-            result.add(new Path(e.getParentNode().getLabel(), e.getChildNode().getLabel(), e.getLabel()));
+        EdgeSnap start = v.segmentIndex().nearest(from.getX(), from.getY());
+        if (start == null){
+            return null;
+        }
+        return v.findPath(start, v.graph.id(dest.location), algorithm);
+    }
+
+    /**
+     * Returns the nodes of this campus map nearest to a point
+     *
+     * @param c the point
+     * @param k the number of nodes wanted
+     * @spec.requires c != null
+     * @spec.requires k >= 0
+     * @return the locations of the min(k, number of nodes) nodes of this map with the smallest
+     *    straight-line distance to c, nearest first
+     */
+    public List<Coordinates> nearestNodes(Coordinates c, int k){
+        MapVersion v = current();
+        return toCoordinates(v.graph, v.nodeIndex().nearest(c.getX(), c.getY(), k));
+    }
+
+    /**
+     * Returns the nodes of this campus map within a distance of a point
+     *
+     * @param c the point
+     * @param radius the largest distance from c of the nodes returned
+     * @spec.requires c != null
+     * @return the locations of the nodes of this map at a straight-line distance of at most radius
+     *    from c, in no particular order
+     */
+    public List<Coordinates> nodesWithin(Coordinates c, double radius){
+        MapVersion v = current();
+        return toCoordinates(v.graph, v.nodeIndex().within(c.getX(), c.getY(), radius));
+    }
+
+    /**
+     * Returns the route found between two buildings in this campus map by the given algorithm, which
+     * records the length of the shortest path and how many nodes the search settled
+     *
+     * @param b1 the building at which the route starts abbreviated name
+     * @param b2 the building at which the route ends abbreviated name
+     * @param algorithm the search used to find the route
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @spec.requires algorithm != null
+     * @return the shortest route between b1 and b2, or null if no path exists or one of the buildings isn't in the map
+     */
+    public Route findRoute(String b1, String b2, RoutingAlgorithm algorithm){
+        return current().findRoute(b1, b2, algorithm);
+    }
+
+    /**
+     * Returns the shortest routes from a building to every node of this campus map, found by a
+     * single search
+     *
+     * @param b the building at which the routes start abbreviated name
+     * @spec.requires b != null
+     * @return the tree of the shortest routes from b in the routing graph of this map, or null if
+     *    b isn't in the map
+     */
+    public ShortestPathTree shortestPathTree(String b){
+        MapVersion v = current();
+        Building start = v.buildings.get(b);
+        if (start == null){
+            return null;
+        }
+        return GraphSearch.shortestPathTree(v.graph, v.graph.id(start.location));
+    }
+
+    /**
+     * Returns the length of the shortest path from a building to every building of this campus
+     * map, found by a single search rather than one per building
+     *
+     * @param b the building at which the paths start abbreviated name
+     * @spec.requires b != null
+     * @return a map from the abbreviated name of every building that can be reached from b, b
+     *    included, to the length of the shortest path to it, sorted by abbreviated name, or null if
+     *    b isn't in the map
+     */
+    public SortedMap<String, Double> distancesFrom(String b){
+        MapVersion v = current();
+        Building start = v.buildings.get(b);
+        if (start == null){
+            return null;
+        }
+        ShortestPathTree tree = GraphSearch.shortestPathTree(v.graph, v.graph.id(start.location));
+        SortedMap<String, Double> result = new TreeMap<>();
+        for (Building dest: v.buildings.values()){
+            int t = v.graph.id(dest.location);
+            if (tree.reaches(t)){
+                result.put(dest.shortName, tree.distance(t));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lengths of the shortest paths from every one of a list of buildings to every one
+     * of another, found with the contraction hierarchy of this map in one search per building
+     * rather than one per pair
+     *
+     * @param sources the abbreviated names of the buildings the paths start at
+     * @param targets the abbreviated names of the buildings the paths end at
+     * @spec.requires sources != null && targets != null
+     * @return the matrix of the distances from every building of sources to every building of
+     *    targets, or null if one of them isn't in the map
+     */
+    public DistanceMatrix distanceMatrix(List<String> sources, List<String> targets){
+        MapVersion v = current();
+        int[] s = v.ids(sources);
+        int[] t = v.ids(targets);
+        if (s == null || t == null){
+            return null;
+        }
+        return new DistanceMatrix(sources, targets, v.contractionHierarchy().distances(s, t));
+    }
+
+    /**
+     * Returns the latest version of this map published. Never takes a lock: while a writer is
+     * modifying this map, the previous version is returned.
+     *
+     * @return the version of this map reflecting every modification whose call has returned
+     */
+    MapVersion current(){
+        return published;
+    }
+
+    /**
+     * Builds and publishes the version of this map reflecting all modifications so far, unless
+     * it is already published.
+     *
+     * @spec.requires the lock of this is held
+     * @spec.modifies this
+     */
+    private void publish(){
+        MapVersion v = published;
+        if (v.version == version){
+            return;
+        }
+        if (nodesChanged){
+            // Paths or nodes were added: the graph, and with it the hierarchy, must be rebuilt
+            v = new MapVersion(version, buildings, new CompactGraph(graph()), null);
+            nodesChanged = false;
+        }else{
+            // Only buildings on existing nodes were added or replaced: the graph is still valid
+            v = new MapVersion(version, buildings, v.graph, v.hierarchy);
+        }
+        published = v;
+    }
+
+    /**
+     * Returns the DLMGraph of this map's paths, rebuilding it from the published routing graph if
+     * this map was loaded from a snapshot and hasn't been modified since.
+     *
+     * @return the graph of this map's paths
+     */
+    private DLMGraph<Coordinates, Double> graph(){
+        if (campusMap == null){
+            CompactGraph g = published.graph;
+            DLMGraph<Coordinates, Double> graph = new DLMGraph<>();
+            for (int u = 0; u < g.numberOfNodes(); u++){
+                graph.addNode(new Node<>(g.coordinates(u)));
+            }
+            for (int e = 0; e < g.numberOfEdges(); e++){
+                graph.addEdge(new DEdge<>(new Node<>(g.coordinates(g.source(e))), new Node<>(g.coordinates(g.target(e))), g.weight(e)));
+            }
+            campusMap = graph;
+        }
+        return campusMap;
+    }
+
+    /**
+     * Builds the structures the given algorithm routes with, if they aren't up to date, so
+     * that the next query with that algorithm doesn't have to
+     *
+     * @param algorithm the algorithm that will be used to route
+     * @spec.requires algorithm != null
+     */
+    public void prepare(RoutingAlgorithm algorithm){
+        MapVersion v = current();
+        if (algorithm == RoutingAlgorithm.CONTRACTION_HIERARCHIES){
+            v.contractionHierarchy();
+        }
+    }
+
+    /**
+     * Computes the shortest routes between every ordered pair of buildings in this map, searching
+     * from different start buildings in parallel
+     *
+     * @return a table of the shortest routes between all pairs of buildings in this map
+     */
+    public BuildingRouteTable precomputeRoutes(){
+        MapVersion v = current();
+        CompactGraph g = v.graph;
+        ContractionHierarchy h = v.contractionHierarchy();
+        Map<String, Building> buildings = v.buildings;
+        List<String> names = new ArrayList<>(buildings.keySet());
+        Collections.sort(names);
+        int n = names.size();
+        Route[][] routes = new Route[n][n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int s = g.id(buildings.get(names.get(i)).location);
+            for (int j = 0; j < n; j++){
+                routes[i][j] = h.route(s, g.id(buildings.get(names.get(j)).location));
+            }
+        });
+        return new BuildingRouteTable(g, names, routes);
+    }
+
+    /**
+     * Returns the paths along a route.
+     *
+     * @param g the graph the route was found in
+     * @param route the route, or null
+     * @return the paths along the edges of route, in order, or null if route is null
+     */
+    private static List<Path> toPaths(CompactGraph g, Route route){
+        if (route == null){
+            return null;
+        }
+        List<Path> result = new ArrayList<>(route.length());
+        for (int i = 0; i < route.length(); i++){
+            result.add(new Path(g.coordinates(route.node(i)), g.coordinates(route.node(i + 1)), g.weight(route.edge(i))));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the locations of nodes.
+     *
+     * @param g the graph of the nodes
+     * @param nodes the ids of the nodes
+     * @return the coordinates of the nodes, in the same order
+     */
+    private static List<Coordinates> toCoordinates(CompactGraph g, int[] nodes){
+        List<Coordinates> result = new ArrayList<>(nodes.length);
+        for (int u: nodes){
+            result.add(g.coordinates(u));
         }
-        checkRep();
         return result;
     }
 
     /** Checks that the representation invariant holds (if any). */
     private void checkRep(){
-        assert(campusMap != null);
+        assert(campusMap != null || version == published.version);
         assert(buildings != null);
+        assert(published != null && published.version <= version);
         if (DEBUGGING){
             for (String b: buildings.keySet()){
                 assert(b != null);
                 assert(buildings.get(b) != null);
-                assert(campusMap.contains(new Node<>(buildings.get(b).location)));
+                assert(graph().contains(new Node<>(buildings.get(b).location)));
             }
-            for (DEdge<Coordinates, Double> e: campusMap.getEdges()){
+            for (DEdge<Coordinates, Double> e: graph().getEdges()){
                 assert(e.getLabel() > 0);
             }
         }
     }
 
+    /**
+     * <b>MapVersion</b> is an immutable version of a CampusMap: its buildings and routing graph as
+     * of a given number of modifications. Its contraction hierarchy is built on first use, by one
+     * thread while others wait for it, and so are its spatial indexes of nodes and edges, without
+     * waiting.
+     */
+    static final class MapVersion {
+
+        /** The number of modifications of the map this version reflects */
+        private final long version;
+
+        /** Maps building's abbreviated name to their other attributes */
+        private final Map<String, Building> buildings;
+
+        /** The routing graph of the paths of the map */
+        private final CompactGraph graph;
+
+        /** The contraction hierarchy of graph, or null if it wasn't built yet */
+        private volatile ContractionHierarchy hierarchy;
+
+        /** The spatial index of the nodes of graph, or null if it wasn't built yet */
+        private volatile NodeIndex nodeIndex;
+
+        /** The spatial index of the edges of graph, or null if it wasn't built yet */
+        private volatile SegmentIndex segmentIndex;
+
+        /**
+         * @param version the number of modifications of the map
+         * @param buildings the buildings of the map, which are copied
+         * @param graph the routing graph of the map
+         * @param hierarchy the contraction hierarchy of graph, or null if it wasn't built yet
+         * @spec.effects Constructs a new MapVersion of the given map data
+         */
+        private MapVersion(long version, Map<String, Building> buildings, CompactGraph graph, ContractionHierarchy hierarchy){
+            this.version = version;
+            this.buildings = Collections.unmodifiableMap(new HashMap<>(buildings));
+            this.graph = graph;
+            this.hierarchy = hierarchy;
+        }
+
+        /**
+         * Returns the routing graph of this version.
+         *
+         * @return the routing graph of this version
+         */
+        CompactGraph graph(){
+            return graph;
+        }
+
+        /**
+         * Returns the contraction hierarchy of this version, if it was already built.
+         *
+         * @return the contraction hierarchy of graph(), or null if it wasn't built yet
+         */
+        ContractionHierarchy builtHierarchy(){
+            return hierarchy;
+        }
+
+        /**
+         * Returns the buildings of this version.
+         *
+         * @return an unmodifiable map from abbreviated names to the buildings of this version
+         */
+        Map<String, Building> buildings(){
+            return buildings;
+        }
+
+        /**
+         * Returns the contraction hierarchy of this version, building it if needed.
+         *
+         * @return the contraction hierarchy of graph
+         */
+        private ContractionHierarchy contractionHierarchy(){
+            ContractionHierarchy h = hierarchy;
+            if (h == null){
+                synchronized (this){
+                    h = hierarchy;
+                    if (h == null){
+                        h = new ContractionHierarchy(graph);
+                        hierarchy = h;
+                    }
+                }
+            }
+            return h;
+        }
+
+        /**
+         * Returns the spatial index of the nodes of this version, building it if needed.
+         *
+         * @return the spatial index of the nodes of graph
+         */
+        private NodeIndex nodeIndex(){
+            NodeIndex i = nodeIndex;
+            if (i == null){
+                // Not built under the lock of this, so as not to wait for a contraction hierarchy
+                // being built: threads racing here each build an identical index, which is cheap
+                i = new NodeIndex(graph);
+                nodeIndex = i;
+            }
+            return i;
+        }
+
+        /**
+         * Returns the spatial index of the edges of this version, building it if needed.
+         *
+         * @return the spatial index of the edges of graph
+         */
+        private SegmentIndex segmentIndex(){
+            SegmentIndex i = segmentIndex;
+            if (i == null){
+                // Built without a lock, like nodeIndex
+                i = new SegmentIndex(graph);
+                segmentIndex = i;
+            }
+            return i;
+        }
+
+        /**
+         * Searches for the shortest path between two points on edges of this version. The search
+         * starts from a virtual node at start, with edges to the ends of its edge, and ends at one
+         * at dest; graph itself is left untouched.
+         *
+         * @param start the point at which the path starts
+         * @param dest the point at which the path ends
+         * @param algorithm the search used to find the path
+         * @return the shortest path from start to dest, or null if none exists
+         */
+        private List<Path> findPath(EdgeSnap start, EdgeSnap dest, RoutingAlgorithm algorithm){
+            Route route = route(start.exits(), start.exitDistances(), dest.entries(), dest.entryDistances(), algorithm);
+            double direct = start.distanceAlongEdge(dest);
+            if (direct < Double.POSITIVE_INFINITY && (route == null || direct <= route.getDistance())){
+                // Both points are on the same edge, and going straight along it is shortest
+                return direct == 0 ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(
+                        new Path(start.point(), dest.point(), direct)));
+            }
+            if (route == null){
+                return null;
+            }
+            List<Path> result = new ArrayList<>(route.length() + 2);
+            double first = distanceOf(route.node(0), start.exits(), start.exitDistances());
+            if (first > 0){
+                result.add(new Path(start.point(), graph.coordinates(route.node(0)), first));
+            }
+            result.addAll(toPaths(graph, route));
+            double last = distanceOf(route.node(route.length()), dest.entries(), dest.entryDistances());
+            if (last > 0){
+                result.add(new Path(graph.coordinates(route.node(route.length())), dest.point(), last));
+            }
+            return result;
+        }
+
+        /**
+         * Searches for the shortest path from a point on an edge of this version to a node. The
+         * search starts from a virtual node at start, with edges to the ends of its edge, as in
+         * findPath(EdgeSnap, EdgeSnap, RoutingAlgorithm).
+         *
+         * @param start the point at which the path starts
+         * @param dest the id of the node at which the path ends
+         * @param algorithm the search used to find the path
+         * @return the shortest path from start to dest, or null if none exists
+         */
+        private List<Path> findPath(EdgeSnap start, int dest, RoutingAlgorithm algorithm){
+            Route route = route(start.exits(), start.exitDistances(), new int[]{dest}, new double[]{0}, algorithm);
+            if (route == null){
+                return null;
+            }
+            List<Path> result = new ArrayList<>(route.length() + 1);
+            double first = distanceOf(route.node(0), start.exits(), start.exitDistances());
+            if (first > 0){
+                result.add(new Path(start.point(), graph.coordinates(route.node(0)), first));
+            }
+            result.addAll(toPaths(graph, route));
+            return result;
+        }
+
+        /**
+         * Returns the distance of a node among nodes with distances.
+         *
+         * @param u the id of the node
+         * @param nodes the ids of the nodes
+         * @param distances the distance of each of nodes
+         * @spec.requires u is in nodes
+         * @return the least distance of u in distances
+         */
+        private static double distanceOf(int u, int[] nodes, double[] distances){
+            double d = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < nodes.length; i++){
+                if (nodes[i] == u){
+                    d = Math.min(d, distances[i]);
+                }
+            }
+            return d;
+        }
+
+        /**
+         * Searches for the shortest route between two buildings in this version
+         *
+         * @param b1 the building at which the route starts abbreviated name
+         * @param b2 the building at which the route ends abbreviated name
+         * @param algorithm the search used to find the route
+         * @return the shortest route between b1 and b2, or null if no path exists or one of the buildings isn't in the map
+         */
+        private Route findRoute(String b1, String b2, RoutingAlgorithm algorithm){
+            if (b1 == null || b2 == null || algorithm == null){
+                throw new NullPointerException();
+            }
+            Building start = buildings.get(b1);
+            Building dest = buildings.get(b2);
+            // If either the start or dest isn't a building in our map, return null
+            if (start == null || dest == null){
+                return null;
+            }
+            return route(graph.id(start.location), graph.id(dest.location), algorithm);
+        }
+
+        /**
+         * Returns the nodes of buildings of this version
+         *
+         * @param names the abbreviated names of the buildings
+         * @return the id in graph of the node of every building of names, in order, or null if
+         *    one of them isn't in this version
+         */
+        private int[] ids(List<String> names){
+            int[] ids = new int[names.size()];
+            for (int i = 0; i < ids.length; i++){
+                Building b = buildings.get(names.get(i));
+                if (b == null){
+                    return null;
+                }
+                ids[i] = graph.id(b.location);
+            }
+            return ids;
+        }
+
+        /**
+         * Searches for the shortest route between two nodes of graph
+         *
+         * @param s the id of the node at which the route starts
+         * @param t the id of the node at which the route ends
+         * @param algorithm the search used to find the route
+         * @return the shortest route from s to t, or null if no path exists
+         */
+        private Route route(int s, int t, RoutingAlgorithm algorithm){
+            switch (algorithm){
+                case ASTAR:
+                    return GraphSearch.aStar(graph, s, t);
+                case BIDIRECTIONAL:
+                    return GraphSearch.bidirectional(graph, s, t);
+                case CONTRACTION_HIERARCHIES:
+                    return contractionHierarchy().route(s, t);
+                case DIJKSTRA:
+                default:
+                    return GraphSearch.dijkstra(graph, s, t);
+            }
+        }
+
+        /**
+         * Searches for the shortest route between a virtual start node and a virtual destination, as
+         * described for GraphSearch.dijkstra
+         *
+         * @param starts the ids of the nodes the virtual start node has edges to
+         * @param startDistances the weights of the edges from the virtual start node
+         * @param dests the ids of the nodes that have edges to the virtual destination
+         * @param destDistances the weights of the edges to the virtual destination
+         * @param algorithm the search used to find the route
+         * @return the shortest route from a node of starts to a node of dests, including the virtual
+         *    edges in its distance, or null if no path exists
+         */
+        private Route route(int[] starts, double[] startDistances, int[] dests, double[] destDistances, RoutingAlgorithm algorithm){
+            switch (algorithm){
+                case ASTAR:
+                    return GraphSearch.aStar(graph, starts, startDistances, dests, destDistances);
+                case BIDIRECTIONAL:
+                    return GraphSearch.bidirectional(graph, starts, startDistances, dests, destDistances);
+                case CONTRACTION_HIERARCHIES:
+                    return contractionHierarchy().route(starts, startDistances, dests, destDistances);
+                case DIJKSTRA:
+                default:
+                    return GraphSearch.dijkstra(graph, starts, startDistances, dests, destDistances);
+            }
+        }
+
+    }
+
+    /**
+     * <b>Loader</b> builds a campus map from a batch of buildings and paths, the way CampusMap.of
+     * does, but is fed them one at a time. As a PathConsumer, it can be passed to a parser of the
+     * paths data set, so that the paths go straight into the graph without a Path object, or a list
+     * of all of them, ever being created. A loader builds one map: once build has been called, it
+     * can't be used any more.
+     */
+    public static final class Loader implements DataParser.PathConsumer {
+
+        /** The graph of the paths loaded so far */
+        private final DLMGraph.Builder<Coordinates, Double> graph;
+
+        /** Maps the abbreviated name of every building loaded so far to the building */
+        private final Map<String, Building> buildings;
+
+        /**
+         * @param expectedPaths the number of paths expected, or 0 if it isn't known
+         * @spec.requires expectedPaths >= 0
+         * @spec.effects Constructs a new loader of an empty map
+         */
+        public Loader(int expectedPaths){
+            // Paths mostly share their endpoints, so there are about as many nodes as paths
+            graph = new DLMGraph.Builder<>(expectedPaths, 2 * expectedPaths);
+            buildings = new HashMap<>();
+        }
+
+        /** @spec.effects Constructs a new loader of an empty map, without knowing how many paths it will hold */
+        public Loader(){
+            this(0);
+        }
+
+        /**
+         * Adds a building to the map being loaded, replacing any building with the same abbreviated name
+         *
+         * @param b the building to add
+         * @spec.requires b != null
+         * @spec.modifies this
+         * @throws IllegalStateException if the map was already built
+         */
+        public void addBuilding(Building b){
+            graph.addNode(new Node<>(b.location));
+            buildings.put(b.shortName, b);
+        }
+
+        /**
+         * Adds a path to the map being loaded
+         *
+         * @param p the path to add
+         * @spec.requires p != null
+         * @spec.modifies this
+         * @throws IllegalStateException if the map was already built
+         */
+        public void addPath(Path p){
+            addPath(p.getOrigin(), p.getDestination(), p.distance);
+        }
+
+        /**
+         * Adds a path, given by the coordinates of its ends and its distance, to the map being loaded
+         *
+         * @spec.modifies this
+         * @throws IllegalStateException if the map was already built
+         */
+        @Override
+        public void accept(double originX, double originY, double destinationX, double destinationY, double distance){
+            addPath(new Coordinates(originX, originY), new Coordinates(destinationX, destinationY), distance);
+        }
+
+        /**
+         * Returns the map loaded, and ends the use of this loader
+         *
+         * @return a new campus map of every building and path added to this loader
+         * @throws IllegalStateException if the map was already built
+         */
+        public CampusMap build(){
+            return new CampusMap(graph.build(), buildings);
+        }
+
+        /**
+         * Adds a path in both directions to the graph being built
+         *
+         * @param origin the location of the path's origin
+         * @param destination the location of the path's destination
+         * @param distance the path's distance
+         * @spec.modifies this
+         */
+        private void addPath(Coordinates origin, Coordinates destination, double distance){
+            Node<Coordinates> s = new Node<>(origin);
+            Node<Coordinates> d = new Node<>(destination);
+            graph.addEdge(new DEdge<>(s, d, distance));
+            graph.addEdge(new DEdge<>(d, s, distance));
+        }
+
+    }
+
     /**
      * <b>Building</b> is an immutable representation of a building on campus, through its
      * long name, abbreviated name, and location .
@@ -0,0 +1,401 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import java.util.*;
+
+/**
+ * <b>CompactGraph</b> is an immutable, array-based copy of a DLMGraph of Coordinates with
+ * Double labels, meant for routing. Nodes are numbered from 0 to numberOfNodes() - 1 in
+ * increasing order of their x coordinate, then of their y coordinate, so that nodes close to each
+ * other tend to have close ids, and the id of the node at given coordinates is found in a
+ * CoordinateTable. Edges are stored in
+ * compressed sparse row form: the edges leaving node u have ids firstEdge(u) to
+ * endEdge(u) - 1, and edge e leads to node target(e) with weight weight(e). The edges
+ * entering node v are also indexed, by position: inEdge(i) for i from firstInEdge(v) to
+ * endInEdge(v) - 1 is the id of an edge leading to v, so that searches can run backwards.
+ *
+ * The graph also records the largest factor by which the straight-line distance between
+ * two nodes can be scaled while never exceeding the weight of a path between them, which
+ * makes that scaled distance an admissible heuristic for A* search.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield nodes: the coordinates of the nodes of this graph, indexed by id
+ *   @spec.specfield edges: the (source, target, weight) triples of this graph, indexed by id
+ *
+ * <b>Abstract invariant</b>:
+ *   No two nodes have the same coordinates. Every edge is between two nodes of this graph.
+ */
+public final class CompactGraph {
+
+    /** The x coordinate of the node with a given id */
+    private final double[] xs;
+
+    /** The y coordinate of the node with a given id */
+    private final double[] ys;
+
+    /** The id of the first edge leaving a given node; offsets[numberOfNodes()] is the number of edges */
+    private final int[] offsets;
+
+    /** The id of the node a given edge leads to */
+    private final int[] targets;
+
+    /** The weight of a given edge */
+    private final double[] weights;
+
+    /** The id of the node a given edge leaves from */
+    private final int[] sources;
+
+    /** The first position in inEdges of the edges entering a given node */
+    private final int[] inOffsets;
+
+    /** The ids of all edges, grouped by the node they lead to */
+    private final int[] inEdges;
+
+    /** The id of the node at each pair of coordinates, sharing xs and ys */
+    private final CoordinateTable ids;
+
+    /** The smallest ratio of an edge's weight to the straight-line length between its nodes */
+    private final double heuristicScale;
+
+    // Abstraction function:
+    //    CompactGraph g represents the graph whose node with id i is at (xs[i], ys[i]), and whose
+    //    edges with ids offsets[u] to offsets[u + 1] - 1 leave node u, edge e leading to targets[e]
+    //    with weight weights[e].
+    //
+    // Representation invariant for every CompactGraph g:
+    //    xs.length == ys.length == offsets.length - 1 &&
+    //    targets.length == weights.length == offsets[offsets.length - 1] &&
+    //    forall u: offsets[u] <= offsets[u + 1] &&
+    //    forall e: 0 <= targets[e] < xs.length &&
+    //    forall e: offsets[sources[e]] <= e < offsets[sources[e] + 1] &&
+    //    forall v: inEdges[inOffsets[v]..inOffsets[v + 1]) are the ids of the edges e with targets[e] == v &&
+    //    forall i < j: (xs[i], ys[i]) comes before (xs[j], ys[j]) in the order of compare &&
+    //    forall i: ids.id(xs[i], ys[i]) == i &&
+    //    forall edges (u, v, w): heuristicScale * straight-line length of (u, v) <= w
+
+    /**
+     * @param graph the graph to copy
+     * @spec.requires graph != null
+     * @spec.effects Constructs a new CompactGraph with the same nodes and edges as graph
+     */
+    public CompactGraph(DLMGraph<Coordinates, Double> graph){
+        List<Coordinates> sorted = new ArrayList<>();
+        for (Node<Coordinates> n: graph.getNodes()){
+            sorted.add(n.getLabel());
+        }
+        sorted.sort((c1, c2) -> compare(c1.getX(), c1.getY(), c2.getX(), c2.getY()));
+        int n = sorted.size();
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; i++){
+            Coordinates c = sorted.get(i);
+            xs[i] = c.getX();
+            ys[i] = c.getY();
+        }
+        ids = new CoordinateTable(xs, ys);
+        offsets = new int[n + 1];
+        List<List<DEdge<Coordinates, Double>>> adjacency = new ArrayList<>(n);
+        for (int i = 0; i < n; i++){
+            List<DEdge<Coordinates, Double>> out = new ArrayList<>(graph.outEdgesView(new Node<>(sorted.get(i))));
+            // Each node's edges are stored by increasing target, so that the nodes a search
+            // reaches from it are close to each other in memory
+            out.sort(Comparator.comparingInt(e -> id(e.getChildNode().getLabel())));
+            adjacency.add(out);
+            offsets[i + 1] = offsets[i] + out.size();
+        }
+        targets = new int[offsets[n]];
+        weights = new double[offsets[n]];
+        sources = new int[offsets[n]];
+        inOffsets = new int[n + 1];
+        double scale = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++){
+            int e = offsets[i];
+            for (DEdge<Coordinates, Double> edge: adjacency.get(i)){
+                targets[e] = id(edge.getChildNode().getLabel());
+                weights[e] = edge.getLabel();
+                sources[e] = i;
+                inOffsets[targets[e] + 1]++;
+                double length = straightLineDistance(i, targets[e]);
+                if (length > 0){
+                    scale = Math.min(scale, weights[e] / length);
+                }
+                e++;
+            }
+        }
+        // By the triangle inequality, no path is shorter than its endpoints' scaled straight-line
+        // distance if no edge is. The factor is shrunk slightly so that rounding errors can't make
+        // the heuristic overestimate. Without any edge of positive length, the heuristic is disabled.
+        heuristicScale = scale == Double.POSITIVE_INFINITY ? 0 : scale * (1 - 1e-9);
+        for (int i = 0; i < n; i++){
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        inEdges = new int[offsets[n]];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int e = 0; e < targets.length; e++){
+            inEdges[next[targets[e]]++] = e;
+        }
+        checkRep();
+    }
+
+    /**
+     * @param in the buffer to read the graph from, positioned at a section written by write
+     * @spec.requires in != null
+     * @spec.effects Constructs a new CompactGraph from the arrays stored in a snapshot
+     * @throws IllegalStateException if the section has invalid counts
+     */
+    CompactGraph(SnapshotBuffer in){
+        int n = in.getCount(16);
+        int m = in.getCount(20);
+        heuristicScale = in.getDouble();
+        xs = in.getDoubles(n);
+        ys = in.getDoubles(n);
+        offsets = in.getInts(n + 1);
+        targets = in.getInts(m);
+        weights = in.getDoubles(m);
+        sources = in.getInts(m);
+        inOffsets = in.getInts(n + 1);
+        inEdges = in.getInts(m);
+        ids = new CoordinateTable(xs, ys);
+        checkRep();
+    }
+
+    /**
+     * Writes the arrays of this graph to a snapshot, to be read back by CompactGraph(SnapshotBuffer).
+     *
+     * @param out the buffer to write to
+     * @spec.requires out != null
+     * @spec.modifies out
+     */
+    void write(SnapshotBuffer out){
+        out.putInt(xs.length);
+        out.putInt(targets.length);
+        out.putDouble(heuristicScale);
+        out.putDoubles(xs);
+        out.putDoubles(ys);
+        out.putInts(offsets);
+        out.putInts(targets);
+        out.putDoubles(weights);
+        out.putInts(sources);
+        out.putInts(inOffsets);
+        out.putInts(inEdges);
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     *
+     * @return the number of nodes in this graph
+     */
+    public int numberOfNodes(){
+        return xs.length;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the number of edges in this graph
+     */
+    public int numberOfEdges(){
+        return targets.length;
+    }
+
+    /**
+     * Returns the id of the node at the given coordinates.
+     *
+     * @param c the coordinates of the node
+     * @spec.requires c != null
+     * @return the id of the node at c, or -1 if there is none
+     */
+    public int id(Coordinates c){
+        return ids.id(c.getX(), c.getY());
+    }
+
+    /**
+     * Returns the id of the node at the given coordinates.
+     *
+     * @param x the x coordinate of the node
+     * @param y the y coordinate of the node
+     * @return the id of the node at (x, y), or -1 if there is none
+     */
+    public int id(double x, double y){
+        return ids.id(x, y);
+    }
+
+    /**
+     * Returns the coordinates of the node with the given id.
+     *
+     * @param u the id of the node
+     * @spec.requires 0 <= u < numberOfNodes()
+     * @return the coordinates of node u
+     */
+    public Coordinates coordinates(int u){
+        return new Coordinates(xs[u], ys[u]);
+    }
+
+    /**
+     * Returns the x coordinate of the node with the given id.
+     *
+     * @param u the id of the node
+     * @spec.requires 0 <= u < numberOfNodes()
+     * @return the x coordinate of node u
+     */
+    public double x(int u){
+        return xs[u];
+    }
+
+    /**
+     * Returns the y coordinate of the node with the given id.
+     *
+     * @param u the id of the node
+     * @spec.requires 0 <= u < numberOfNodes()
+     * @return the y coordinate of node u
+     */
+    public double y(int u){
+        return ys[u];
+    }
+
+    /**
+     * Returns the id of the first edge leaving the given node.
+     *
+     * @param u the id of the node
+     * @spec.requires 0 <= u < numberOfNodes()
+     * @return the id of the first edge leaving u
+     */
+    public int firstEdge(int u){
+        return offsets[u];
+    }
+
+    /**
+     * Returns one more than the id of the last edge leaving the given node.
+     *
+     * @param u the id of the node
+     * @spec.requires 0 <= u < numberOfNodes()
+     * @return one more than the id of the last edge leaving u
+     */
+    public int endEdge(int u){
+        return offsets[u + 1];
+    }
+
+    /**
+     * Returns the id of the node the given edge leads to.
+     *
+     * @param e the id of the edge
+     * @spec.requires 0 <= e < numberOfEdges()
+     * @return the id of the node e leads to
+     */
+    public int target(int e){
+        return targets[e];
+    }
+
+    /**
+     * Returns the id of the node the given edge leaves from.
+     *
+     * @param e the id of the edge
+     * @spec.requires 0 <= e < numberOfEdges()
+     * @return the id of the node e leaves from
+     */
+    public int source(int e){
+        return sources[e];
+    }
+
+    /**
+     * Returns the first position of the edges entering the given node.
+     *
+     * @param v the id of the node
+     * @spec.requires 0 <= v < numberOfNodes()
+     * @return the first position i such that inEdge(i) enters v
+     */
+    public int firstInEdge(int v){
+        return inOffsets[v];
+    }
+
+    /**
+     * Returns one more than the last position of the edges entering the given node.
+     *
+     * @param v the id of the node
+     * @spec.requires 0 <= v < numberOfNodes()
+     * @return one more than the last position i such that inEdge(i) enters v
+     */
+    public int endInEdge(int v){
+        return inOffsets[v + 1];
+    }
+
+    /**
+     * Returns the id of the edge at the given position of the index of entering edges.
+     *
+     * @param i the position in the index
+     * @spec.requires 0 <= i < numberOfEdges()
+     * @return the id of the edge at position i
+     */
+    public int inEdge(int i){
+        return inEdges[i];
+    }
+
+    /**
+     * Returns the weight of the given edge.
+     *
+     * @param e the id of the edge
+     * @spec.requires 0 <= e < numberOfEdges()
+     * @return the weight of e
+     */
+    public double weight(int e){
+        return weights[e];
+    }
+
+    /**
+     * Returns the straight-line distance between two nodes, in coordinate units.
+     *
+     * @param u the id of the first node
+     * @param v the id of the second node
+     * @spec.requires 0 <= u, v < numberOfNodes()
+     * @return the Euclidean distance between the coordinates of u and v
+     */
+    public double straightLineDistance(int u, int v){
+        double dx = xs[u] - xs[v];
+        double dy = ys[u] - ys[v];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns a factor such that, for any nodes u and v, heuristicScale() * straightLineDistance(u, v)
+     * is at most the weight of any path from u to v.
+     *
+     * @return the largest factor derived from the edges of this graph that keeps the scaled
+     *    straight-line distance a lower bound on path weights, or 0 if this graph has no edge
+     *    between distinct coordinates
+     */
+    public double heuristicScale(){
+        return heuristicScale;
+    }
+
+    /**
+     * Compares two points by x coordinate, then by y coordinate. Coordinates are compared with <,
+     * like Coordinates.equals does, so that 0.0 and -0.0 are the same.
+     *
+     * @param x1 the x coordinate of the first point
+     * @param y1 the y coordinate of the first point
+     * @param x2 the x coordinate of the second point
+     * @param y2 the y coordinate of the second point
+     * @return a negative number, zero, or a positive number as the first point comes before, is the
+     *    same as, or comes after the second point
+     */
+    private static int compare(double x1, double y1, double x2, double y2){
+        if (x1 < x2) return -1;
+        if (x1 > x2) return 1;
+        if (y1 < y2) return -1;
+        if (y1 > y2) return 1;
+        return 0;
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(xs.length == ys.length);
+        assert(offsets.length == xs.length + 1);
+        assert(targets.length == weights.length);
+        assert(sources.length == targets.length);
+        assert(inEdges.length == targets.length);
+        assert(inOffsets[xs.length] == targets.length);
+        assert(offsets[xs.length] == targets.length);
+        assert(heuristicScale >= 0);
+    }
+
+}
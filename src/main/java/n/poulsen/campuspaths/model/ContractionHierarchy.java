@@ -0,0 +1,755 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.Arrays;
+
+/**
+ * <b>ContractionHierarchy</b> is an immutable index over a CompactGraph that answers shortest
+ * route queries by searching only a small part of the graph.
+ *
+ * It is built by contracting the nodes of the graph one at a time, in an order chosen so that
+ * unimportant nodes (dead ends, nodes in the middle of a path) go first. Contracting a node
+ * removes it from the remaining graph, and adds a shortcut arc u -> w for each pair of arcs
+ * u -> v -> w through it unless a path from u to w of at most the same weight avoids v (a
+ * witness). The position of a node in that order is its rank.
+ *
+ * Every shortest route then has a version, using shortcuts, that goes up in rank and then down,
+ * so a query runs Dijkstra's algorithm forwards from the start along arcs going up in rank, and
+ * backwards from the destination along arcs coming down in rank, and picks the best node at which
+ * the two searches meet. Shortcuts are finally unpacked into the edges of the graph they replace.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield graph: the graph this hierarchy answers queries on
+ *   @spec.specfield rank: the position of each node of graph in the contraction order
+ */
+public final class ContractionHierarchy {
+
+    /** The maximum number of nodes a witness search settles before giving up */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /** Marks the absence of an arc */
+    private static final int NONE = -1;
+
+    /** The graph this hierarchy answers queries on */
+    private final CompactGraph graph;
+
+    /** The position of a given node in the contraction order */
+    private final int[] rank;
+
+    /** The node a given arc leaves from */
+    private final int[] arcFrom;
+
+    /** The node a given arc leads to */
+    private final int[] arcTo;
+
+    /** The weight of a given arc */
+    private final double[] arcWeight;
+
+    /** For a shortcut, the first of the two arcs it replaces */
+    private final int[] arcFirst;
+
+    /** For a shortcut, the second of the two arcs it replaces */
+    private final int[] arcSecond;
+
+    /** The first position in upArcs of the arcs leaving a given node towards a higher rank */
+    private final int[] upOffsets;
+
+    /** Arcs going up in rank, grouped by the node they leave from */
+    private final int[] upArcs;
+
+    /** The first position in downArcs of the arcs entering a given node from a higher rank */
+    private final int[] downOffsets;
+
+    /** Arcs going down in rank, grouped by the node they lead to */
+    private final int[] downArcs;
+
+    // Abstraction function:
+    //    ContractionHierarchy h represents the contraction of graph in the order given by rank. Arcs
+    //    0 to graph.numberOfEdges() - 1 are the edges of graph with the same ids; every other arc a
+    //    is a shortcut from arcFrom[a] to arcTo[a] standing for arcs arcFirst[a] then arcSecond[a].
+    //
+    // Representation invariant for every ContractionHierarchy h:
+    //    rank is a permutation of [0, graph.numberOfNodes()) &&
+    //    forall shortcuts a: arcTo[arcFirst[a]] == arcFrom[arcSecond[a]] &&
+    //                        arcWeight[a] == arcWeight[arcFirst[a]] + arcWeight[arcSecond[a]] &&
+    //    forall arcs a in upArcs: rank[arcFrom[a]] < rank[arcTo[a]] &&
+    //    forall arcs a in downArcs: rank[arcFrom[a]] > rank[arcTo[a]]
+
+    /**
+     * @param graph the graph to build the hierarchy for
+     * @spec.requires graph != null
+     * @spec.requires graph contains only edges with positive weights
+     * @spec.effects Constructs the contraction hierarchy of graph
+     */
+    public ContractionHierarchy(CompactGraph graph){
+        this.graph = graph;
+        Contraction c = new Contraction(graph);
+        c.run();
+        int n = graph.numberOfNodes();
+        rank = c.rank;
+        arcFrom = Arrays.copyOf(c.from, c.arcs);
+        arcTo = Arrays.copyOf(c.to, c.arcs);
+        arcWeight = Arrays.copyOf(c.weight, c.arcs);
+        arcFirst = Arrays.copyOf(c.first, c.arcs);
+        arcSecond = Arrays.copyOf(c.second, c.arcs);
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int a = 0; a < arcFrom.length; a++){
+            if (rank[arcFrom[a]] < rank[arcTo[a]]){
+                upOffsets[arcFrom[a] + 1]++;
+            }else if (rank[arcFrom[a]] > rank[arcTo[a]]){
+                downOffsets[arcTo[a] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++){
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upArcs = new int[upOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        int[] nextUp = Arrays.copyOf(upOffsets, n);
+        int[] nextDown = Arrays.copyOf(downOffsets, n);
+        for (int a = 0; a < arcFrom.length; a++){
+            if (rank[arcFrom[a]] < rank[arcTo[a]]){
+                upArcs[nextUp[arcFrom[a]]++] = a;
+            }else if (rank[arcFrom[a]] > rank[arcTo[a]]){
+                downArcs[nextDown[arcTo[a]]++] = a;
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * @param graph the graph the hierarchy was built for
+     * @param in the buffer to read the hierarchy from, positioned at a section written by write
+     * @spec.requires graph != null && in != null
+     * @spec.effects Constructs the contraction hierarchy of graph stored in a snapshot
+     * @throws IllegalStateException if the section has invalid counts
+     */
+    ContractionHierarchy(CompactGraph graph, SnapshotBuffer in){
+        this.graph = graph;
+        int n = graph.numberOfNodes();
+        int arcs = in.getCount(24);
+        rank = in.getInts(n);
+        arcFrom = in.getInts(arcs);
+        arcTo = in.getInts(arcs);
+        arcWeight = in.getDoubles(arcs);
+        arcFirst = in.getInts(arcs);
+        arcSecond = in.getInts(arcs);
+        upOffsets = in.getInts(n + 1);
+        upArcs = in.getInts(in.getCount(4));
+        downOffsets = in.getInts(n + 1);
+        downArcs = in.getInts(in.getCount(4));
+        checkRep();
+    }
+
+    /**
+     * Writes the arrays of this hierarchy to a snapshot, to be read back by
+     * ContractionHierarchy(CompactGraph, SnapshotBuffer).
+     *
+     * @param out the buffer to write to
+     * @spec.requires out != null
+     * @spec.modifies out
+     */
+    void write(SnapshotBuffer out){
+        out.putInt(arcFrom.length);
+        out.putInts(rank);
+        out.putInts(arcFrom);
+        out.putInts(arcTo);
+        out.putDoubles(arcWeight);
+        out.putInts(arcFirst);
+        out.putInts(arcSecond);
+        out.putInts(upOffsets);
+        out.putInt(upArcs.length);
+        out.putInts(upArcs);
+        out.putInts(downOffsets);
+        out.putInt(downArcs.length);
+        out.putInts(downArcs);
+    }
+
+    /**
+     * Returns the graph this hierarchy answers queries on.
+     *
+     * @return the graph this hierarchy was built for
+     */
+    public CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Returns the number of shortcuts added while contracting the graph.
+     *
+     * @return the number of shortcuts in this hierarchy
+     */
+    public int numberOfShortcuts(){
+        return arcFrom.length - graph.numberOfEdges();
+    }
+
+    /**
+     * Returns the shortest route from a start node to a destination in graph(), with its shortcuts
+     * unpacked into the edges of graph().
+     *
+     * @param start the id of the node from which to start the route
+     * @param dest the id of the node to reach from start
+     * @spec.requires 0 <= start, dest < graph().numberOfNodes()
+     * @return the shortest route from start to dest, or null if dest cannot be reached from start
+     */
+    public Route route(int start, int dest){
+        return route(new int[]{start}, new double[]{0}, new int[]{dest}, new double[]{0});
+    }
+
+    /**
+     * Returns the shortest route from a virtual start node to a virtual destination in graph(), as
+     * described for GraphSearch.dijkstra, with its shortcuts unpacked into the edges of graph(). The
+     * upward search starts from every node of starts and the downward one from every node of dests,
+     * at the weight of their virtual edge.
+     *
+     * @param starts the ids of the nodes the virtual start node has edges to
+     * @param startDistances the weights of the edges from the virtual start node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @spec.requires starts, dests non-empty ids of nodes of graph()
+     * @spec.requires startDistances.length == starts.length && destDistances.length == dests.length
+     * @spec.requires every distance >= 0
+     * @return the shortest route in graph() from some node of starts to some node of dests, whose
+     *    distance includes the weights of the virtual start and destination edges, or null if no node
+     *    of dests can be reached from starts
+     */
+    public Route route(int[] starts, double[] startDistances, int[] dests, double[] destDistances){
+        int n = graph.numberOfNodes();
+        double[] forwardDistance = new double[n];
+        double[] backwardDistance = new double[n];
+        int[] predecessor = new int[n];
+        int[] successor = new int[n];
+        Arrays.fill(forwardDistance, Double.POSITIVE_INFINITY);
+        Arrays.fill(backwardDistance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, NONE);
+        Arrays.fill(successor, NONE);
+        IndexedMinHeap forward = new IndexedMinHeap(n);
+        IndexedMinHeap backward = new IndexedMinHeap(n);
+        GraphSearch.seed(forward, forwardDistance, starts, startDistances);
+        GraphSearch.seed(backward, backwardDistance, dests, destDistances);
+        double best = Double.POSITIVE_INFINITY;
+        int meet = NONE;
+        int settledNodes = 0;
+        // Unlike plain bidirectional search, each side must go on until its own queue can't
+        // improve on the best meeting node, as the meeting node is the highest on the route
+        while (true){
+            boolean forwardOpen = !forward.isEmpty() && forward.peekKey() < best;
+            boolean backwardOpen = !backward.isEmpty() && backward.peekKey() < best;
+            if (!forwardOpen && !backwardOpen){
+                break;
+            }
+            settledNodes++;
+            if (forwardOpen && (!backwardOpen || forward.peekKey() <= backward.peekKey())){
+                int u = forward.poll();
+                if (forwardDistance[u] + backwardDistance[u] < best){
+                    best = forwardDistance[u] + backwardDistance[u];
+                    meet = u;
+                }
+                for (int i = upOffsets[u], end = upOffsets[u + 1]; i < end; i++){
+                    int a = upArcs[i];
+                    int v = arcTo[a];
+                    double d = forwardDistance[u] + arcWeight[a];
+                    if (d < forwardDistance[v]){
+                        forwardDistance[v] = d;
+                        predecessor[v] = a;
+                        forward.offer(v, d);
+                    }
+                }
+            }else{
+                int u = backward.poll();
+                if (forwardDistance[u] + backwardDistance[u] < best){
+                    best = forwardDistance[u] + backwardDistance[u];
+                    meet = u;
+                }
+                for (int i = downOffsets[u], end = downOffsets[u + 1]; i < end; i++){
+                    int a = downArcs[i];
+                    int v = arcFrom[a];
+                    double d = backwardDistance[u] + arcWeight[a];
+                    if (d < backwardDistance[v]){
+                        backwardDistance[v] = d;
+                        successor[v] = a;
+                        backward.offer(v, d);
+                    }
+                }
+            }
+        }
+        if (meet == NONE){
+            return null;
+        }
+        return unpack(predecessor, successor, meet, best, settledNodes);
+    }
+
+    /**
+     * Returns the lengths of the shortest routes from every node of sources to every node of
+     * targets in graph(), without the routes themselves.
+     *
+     * Rather than one query per pair, it runs one search per node: a search backwards along arcs
+     * coming down in rank from every target, which leaves an entry (target, distance) in the bucket
+     * of every node it settles, then a search forwards along arcs going up in rank from every source,
+     * which scans the bucket of every node it settles. As every shortest route goes up then down in
+     * rank, its highest node is settled by both the search from its source and the one from its
+     * target, so the least sum found over the buckets is its length.
+     *
+     * @param sources the ids of the nodes the routes start from
+     * @param targets the ids of the nodes the routes end at
+     * @spec.requires sources, targets ids of nodes of graph()
+     * @return an array of sources.length * targets.length distances, whose entry i * targets.length + j
+     *    is the length of the shortest route from sources[i] to targets[j], or Double.POSITIVE_INFINITY
+     *    if there is none
+     * @throws IllegalArgumentException if the matrix has too many entries to fit in an array
+     */
+    public double[] distances(int[] sources, int[] targets){
+        long cells = (long) sources.length * targets.length;
+        if (cells > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Too many distances asked for: " + cells);
+        }
+        int n = graph.numberOfNodes();
+        double[] distance = new double[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        int[] settled = new int[n];
+        int entries = 0;
+        int[] entryNode = new int[16];
+        int[] entryTarget = new int[16];
+        double[] entryDistance = new double[16];
+        for (int j = 0; j < targets.length; j++){
+            int count = searchSpace(targets[j], false, distance, queue, settled);
+            if (entries + count > entryNode.length){
+                int capacity = Math.max(entries + count, entryNode.length * 2);
+                entryNode = Arrays.copyOf(entryNode, capacity);
+                entryTarget = Arrays.copyOf(entryTarget, capacity);
+                entryDistance = Arrays.copyOf(entryDistance, capacity);
+            }
+            for (int k = 0; k < count; k++){
+                int v = settled[k];
+                entryNode[entries] = v;
+                entryTarget[entries] = j;
+                entryDistance[entries] = distance[v];
+                entries++;
+                distance[v] = Double.POSITIVE_INFINITY;
+            }
+        }
+        // Groups the entries by node, so that the bucket of node v is bucketTarget[bucketStart[v]]
+        // to bucketTarget[bucketStart[v + 1] - 1], with the matching distances
+        int[] bucketStart = new int[n + 1];
+        for (int e = 0; e < entries; e++){
+            bucketStart[entryNode[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++){
+            bucketStart[v + 1] += bucketStart[v];
+        }
+        int[] bucketTarget = new int[entries];
+        double[] bucketDistance = new double[entries];
+        int[] next = Arrays.copyOf(bucketStart, n);
+        for (int e = 0; e < entries; e++){
+            int b = next[entryNode[e]]++;
+            bucketTarget[b] = entryTarget[e];
+            bucketDistance[b] = entryDistance[e];
+        }
+        double[] result = new double[(int) cells];
+        Arrays.fill(result, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < sources.length; i++){
+            int count = searchSpace(sources[i], true, distance, queue, settled);
+            int row = i * targets.length;
+            for (int k = 0; k < count; k++){
+                int u = settled[k];
+                for (int b = bucketStart[u], end = bucketStart[u + 1]; b < end; b++){
+                    double d = distance[u] + bucketDistance[b];
+                    if (d < result[row + bucketTarget[b]]){
+                        result[row + bucketTarget[b]] = d;
+                    }
+                }
+                distance[u] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from a node along arcs going up in rank, or backwards along arcs
+     * coming down in rank, until every node it reaches is settled.
+     *
+     * @param start the id of the node to start from
+     * @param up true to follow arcs going up from start, false to follow arcs coming down to it backwards
+     * @param distance the distance of every node from start, to fill
+     * @param queue the queue of the search
+     * @param settled the ids of the nodes settled, to fill in the order they are settled
+     * @spec.requires every entry of distance is infinite && queue is empty && settled.length >= graph.numberOfNodes()
+     * @spec.modifies distance, queue, settled
+     * @spec.effects Sets the distance of every node settled, and leaves queue empty
+     * @return the number of nodes settled, which are the only ones whose distance was set
+     */
+    private int searchSpace(int start, boolean up, double[] distance, IndexedMinHeap queue, int[] settled){
+        int[] offsets = up ? upOffsets : downOffsets;
+        int[] arcs = up ? upArcs : downArcs;
+        int count = 0;
+        distance[start] = 0;
+        queue.offer(start, 0);
+        while (!queue.isEmpty()){
+            int u = queue.poll();
+            settled[count++] = u;
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++){
+                int a = arcs[i];
+                int v = up ? arcTo[a] : arcFrom[a];
+                double d = distance[u] + arcWeight[a];
+                if (d < distance[v]){
+                    distance[v] = d;
+                    queue.offer(v, d);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds the route through meet, from the start node its upward path leads back to, replacing
+     * every shortcut on it by the edges of graph it stands for.
+     *
+     * @param predecessor the last arc on the best upward path from the start to each node, or NONE
+     *    for the nodes the upward search started from
+     * @param successor the first arc on the best downward path from each node to the destination, or NONE
+     * @param meet the id of the highest node on the route
+     * @param distance the total weight of the route
+     * @param settledNodes the number of nodes settled by the search
+     * @return the route through meet, using only edges of graph
+     */
+    private Route unpack(int[] predecessor, int[] successor, int meet, double distance, int settledNodes){
+        int[] upward = new int[8];
+        int count = 0;
+        int start = meet;
+        for (; predecessor[start] != NONE; start = arcFrom[predecessor[start]]){
+            upward = ensureCapacity(upward, count + 1);
+            upward[count++] = predecessor[start];
+        }
+        // Arcs are pushed in reverse order, so that popping them yields the route from start onwards
+        int[] stack = new int[Math.max(8, count * 2)];
+        int top = 0;
+        for (int v = meet; successor[v] != NONE; v = arcTo[successor[v]]){
+            stack = ensureCapacity(stack, top + 1);
+            stack[top++] = successor[v];
+        }
+        reverse(stack, top);
+        for (int i = 0; i < count; i++){
+            stack = ensureCapacity(stack, top + 1);
+            stack[top++] = upward[i];
+        }
+        int[] edges = new int[Math.max(8, top)];
+        int length = 0;
+        while (top > 0){
+            int a = stack[--top];
+            if (arcFirst[a] == NONE){
+                edges = ensureCapacity(edges, length + 1);
+                edges[length++] = a;
+            }else{
+                stack = ensureCapacity(stack, top + 2);
+                stack[top++] = arcSecond[a];
+                stack[top++] = arcFirst[a];
+            }
+        }
+        int[] nodes = new int[length + 1];
+        nodes[0] = start;
+        for (int i = 0; i < length; i++){
+            nodes[i + 1] = graph.target(edges[i]);
+        }
+        return new Route(nodes, Arrays.copyOf(edges, length), distance, settledNodes);
+    }
+
+    /**
+     * Returns an array holding the content of a, with room for at least the given number of ints.
+     *
+     * @param a the array to grow
+     * @param capacity the required capacity
+     * @return a if it is large enough, or else a larger copy of a
+     */
+    private static int[] ensureCapacity(int[] a, int capacity){
+        return capacity <= a.length ? a : Arrays.copyOf(a, Math.max(capacity, a.length * 2));
+    }
+
+    /**
+     * Reverses the first length elements of a.
+     *
+     * @param a the array to reverse
+     * @param length the number of elements to reverse
+     */
+    private static void reverse(int[] a, int length){
+        for (int i = 0, j = length - 1; i < j; i++, j--){
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(rank.length == graph.numberOfNodes());
+        assert(arcFrom.length >= graph.numberOfEdges());
+        assert(upOffsets.length == rank.length + 1);
+        assert(downOffsets.length == rank.length + 1);
+    }
+
+    /**
+     * The mutable state of the contraction of a graph: the arcs created so far, and the arcs
+     * entering and leaving every node that hasn't been contracted yet.
+     */
+    private static final class Contraction {
+
+        /** The graph being contracted */
+        private final CompactGraph graph;
+
+        /** The number of arcs created so far */
+        private int arcs;
+
+        /** The node a given arc leaves from */
+        private int[] from;
+
+        /** The node a given arc leads to */
+        private int[] to;
+
+        /** The weight of a given arc */
+        private double[] weight;
+
+        /** For a shortcut, the first of the two arcs it replaces, or NONE */
+        private int[] first;
+
+        /** For a shortcut, the second of the two arcs it replaces, or NONE */
+        private int[] second;
+
+        /** The arcs leaving a given node */
+        private final int[][] out;
+
+        /** The number of arcs in out[v] */
+        private final int[] outSize;
+
+        /** The arcs entering a given node */
+        private final int[][] in;
+
+        /** The number of arcs in in[v] */
+        private final int[] inSize;
+
+        /** The position of a given node in the contraction order, or NONE if not contracted yet */
+        private final int[] rank;
+
+        /** The number of contracted neighbours of a given node */
+        private final int[] contractedNeighbours;
+
+        /** The tentative distances of the current witness search */
+        private final double[] witnessDistance;
+
+        /** The nodes whose witnessDistance was set by the current witness search */
+        private final int[] touched;
+
+        /** The number of nodes in touched */
+        private int touchedSize;
+
+        /** The queue of the witness searches */
+        private final IndexedMinHeap witnessQueue;
+
+        /**
+         * @param graph the graph to contract
+         * @spec.effects Constructs the state of a contraction that hasn't contracted any node yet
+         */
+        private Contraction(CompactGraph graph){
+            this.graph = graph;
+            int n = graph.numberOfNodes();
+            int m = graph.numberOfEdges();
+            int capacity = Math.max(16, m * 2);
+            from = new int[capacity];
+            to = new int[capacity];
+            weight = new double[capacity];
+            first = new int[capacity];
+            second = new int[capacity];
+            out = new int[n][];
+            in = new int[n][];
+            outSize = new int[n];
+            inSize = new int[n];
+            for (int v = 0; v < n; v++){
+                out[v] = new int[graph.endEdge(v) - graph.firstEdge(v)];
+                in[v] = new int[graph.endInEdge(v) - graph.firstInEdge(v)];
+            }
+            for (int e = 0; e < m; e++){
+                addArc(graph.source(e), graph.target(e), graph.weight(e), NONE, NONE);
+            }
+            rank = new int[n];
+            Arrays.fill(rank, NONE);
+            contractedNeighbours = new int[n];
+            witnessDistance = new double[n];
+            Arrays.fill(witnessDistance, Double.POSITIVE_INFINITY);
+            touched = new int[n];
+            witnessQueue = new IndexedMinHeap(n);
+        }
+
+        /** Contracts every node of the graph, filling in rank. */
+        private void run(){
+            int n = graph.numberOfNodes();
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++){
+                order.offer(v, priority(v));
+            }
+            int next = 0;
+            while (!order.isEmpty()){
+                int v = order.poll();
+                // Priorities of nodes go stale as their neighbours are contracted: v is only
+                // contracted if its up to date priority is still the lowest
+                double p = priority(v);
+                if (!order.isEmpty() && p > order.peekKey()){
+                    order.offer(v, p);
+                    continue;
+                }
+                contract(v, false);
+                rank[v] = next++;
+                for (int i = 0; i < outSize[v]; i++){
+                    contractedNeighbours[to[out[v][i]]]++;
+                }
+                for (int i = 0; i < inSize[v]; i++){
+                    contractedNeighbours[from[in[v][i]]]++;
+                }
+            }
+        }
+
+        /**
+         * Returns the contraction priority of a node: lower priorities are contracted first. It is the
+         * number of shortcuts contracting the node would add, minus the number of arcs it would remove,
+         * plus its number of contracted neighbours, which spreads contraction evenly over the graph.
+         *
+         * @param v the node whose priority is computed
+         * @return the contraction priority of v
+         */
+        private double priority(int v){
+            int removed = 0;
+            for (int i = 0; i < outSize[v]; i++){
+                if (rank[to[out[v][i]]] == NONE) removed++;
+            }
+            for (int i = 0; i < inSize[v]; i++){
+                if (rank[from[in[v][i]]] == NONE) removed++;
+            }
+            return contract(v, true) - removed + contractedNeighbours[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a node, and adds them unless simulating.
+         *
+         * @param v the node to contract
+         * @param simulate if true, no shortcut is added
+         * @return the number of shortcuts needed
+         */
+        private int contract(int v, boolean simulate){
+            int shortcuts = 0;
+            for (int i = 0; i < inSize[v]; i++){
+                int a1 = in[v][i];
+                int u = from[a1];
+                if (rank[u] != NONE || u == v) continue;
+                double limit = 0;
+                for (int j = 0; j < outSize[v]; j++){
+                    int a2 = out[v][j];
+                    int w = to[a2];
+                    if (rank[w] == NONE && w != u && w != v){
+                        limit = Math.max(limit, weight[a1] + weight[a2]);
+                    }
+                }
+                if (limit == 0) continue;
+                witnessSearch(u, v, limit);
+                for (int j = 0; j < outSize[v]; j++){
+                    int a2 = out[v][j];
+                    int w = to[a2];
+                    if (rank[w] != NONE || w == u || w == v) continue;
+                    double through = weight[a1] + weight[a2];
+                    if (witnessDistance[w] > through){
+                        shortcuts++;
+                        if (!simulate){
+                            addArc(u, w, through, a1, a2);
+                            // The new shortcut is a witness against adding a parallel one
+                            touch(w, through);
+                        }
+                    }
+                }
+                clearWitnessSearch();
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Runs Dijkstra's algorithm from u among uncontracted nodes other than v, until every node
+         * closer than limit is settled or too many nodes have been, and records the distances found
+         * in witnessDistance.
+         *
+         * @param u the node to search from
+         * @param v the node to avoid
+         * @param limit the distance up to which witnesses are looked for
+         */
+        private void witnessSearch(int u, int v, double limit){
+            touch(u, 0);
+            witnessQueue.offer(u, 0);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT){
+                if (witnessQueue.peekKey() > limit) break;
+                int x = witnessQueue.poll();
+                settled++;
+                for (int i = 0; i < outSize[x]; i++){
+                    int a = out[x][i];
+                    int y = to[a];
+                    if (y == v || rank[y] != NONE) continue;
+                    double d = witnessDistance[x] + weight[a];
+                    if (d < witnessDistance[y]){
+                        touch(y, d);
+                        witnessQueue.offer(y, d);
+                    }
+                }
+            }
+            witnessQueue.clear();
+        }
+
+        /**
+         * Sets the witness distance of a node, remembering it must be reset.
+         *
+         * @param x the node reached
+         * @param d its new witness distance
+         */
+        private void touch(int x, double d){
+            if (witnessDistance[x] == Double.POSITIVE_INFINITY){
+                touched[touchedSize++] = x;
+            }
+            witnessDistance[x] = d;
+        }
+
+        /** Resets the witness distances set since the last reset. */
+        private void clearWitnessSearch(){
+            for (int i = 0; i < touchedSize; i++){
+                witnessDistance[touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            touchedSize = 0;
+        }
+
+        /**
+         * Creates an arc and adds it to the arcs leaving u and entering w.
+         *
+         * @param u the node the arc leaves from
+         * @param w the node the arc leads to
+         * @param d the weight of the arc
+         * @param a1 the first arc replaced by the arc, or NONE
+         * @param a2 the second arc replaced by the arc, or NONE
+         */
+        private void addArc(int u, int w, double d, int a1, int a2){
+            if (arcs == from.length){
+                int capacity = from.length * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            int a = arcs++;
+            from[a] = u;
+            to[a] = w;
+            weight[a] = d;
+            first[a] = a1;
+            second[a] = a2;
+            out[u] = ensureCapacity(out[u], outSize[u] + 1);
+            out[u][outSize[u]++] = a;
+            in[w] = ensureCapacity(in[w], inSize[w] + 1);
+            in[w][inSize[w]++] = a;
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.Arrays;
+
+/**
+ * <b>CoordinateTable</b> is an immutable index of coordinates: it maps each of the distinct (x, y)
+ * pairs it is built from to its dense int id, its position in the arrays it is built from, so that
+ * nodes can be handled as ints rather than Coordinates objects. It is an open-addressing hash
+ * table with linear probing, keyed directly on the two doubles, so looking up a pair neither
+ * allocates nor boxes anything.
+ *
+ * Pairs are compared as Coordinates.equals compares them, with ==, except that NaN is equal to
+ * itself; 0.0 and -0.0 are the same coordinate.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield pairs: the sequence of distinct (x, y) pairs indexed, by id
+ */
+final class CoordinateTable {
+
+    /** Marks an empty slot of the table */
+    private static final int EMPTY = -1;
+
+    /** The x coordinate of each pair, by id */
+    private final double[] xs;
+
+    /** The y coordinate of each pair, by id */
+    private final double[] ys;
+
+    /** The id of the pair in each slot, or EMPTY; the length is a power of two */
+    private final int[] slots;
+
+    // Abstraction function:
+    //    CoordinateTable t represents the sequence of pairs (xs[0], ys[0]) ... (xs[xs.length - 1], ys[ys.length - 1]).
+    //
+    // Representation invariant for every CoordinateTable t:
+    //    xs.length == ys.length && slots.length is a power of two && 2 * xs.length <= slots.length &&
+    //    every id in [0, xs.length) is in exactly one slot, found by probing from the slot of its hash
+    //    without crossing an EMPTY slot, and no two ids are of equal pairs
+
+    /**
+     * @param xs the x coordinate of each pair
+     * @param ys the y coordinate of each pair
+     * @spec.requires xs.length == ys.length && the pairs (xs[i], ys[i]) are distinct
+     * @spec.effects Constructs a new CoordinateTable in which pair (xs[i], ys[i]) has id i. The
+     *    arrays are shared, not copied, and are never modified by the table.
+     */
+    CoordinateTable(double[] xs, double[] ys){
+        this.xs = xs;
+        this.ys = ys;
+        slots = newSlots(xs.length);
+        for (int i = 0; i < xs.length; i++){
+            slots[find(xs[i], ys[i])] = i;
+        }
+        checkRep();
+    }
+
+    /**
+     * Returns the id of a pair.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the id of (x, y), or -1 if it isn't in the table
+     */
+    int id(double x, double y){
+        return slots[find(x, y)];
+    }
+
+    /**
+     * Returns the number of pairs in the table.
+     *
+     * @return the number of distinct pairs in the table, one more than the largest id
+     */
+    int size(){
+        return xs.length;
+    }
+
+    /**
+     * Returns the x coordinate of a pair.
+     *
+     * @param id the id of the pair
+     * @spec.requires 0 <= id < size()
+     * @return the x coordinate of the pair with the given id
+     */
+    double x(int id){
+        return xs[id];
+    }
+
+    /**
+     * Returns the y coordinate of a pair.
+     *
+     * @param id the id of the pair
+     * @spec.requires 0 <= id < size()
+     * @return the y coordinate of the pair with the given id
+     */
+    double y(int id){
+        return ys[id];
+    }
+
+    /**
+     * Returns the slot of a pair, or the empty slot it would be placed in.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the slot holding the id of (x, y), or else the first empty slot probed for it
+     */
+    private int find(double x, double y){
+        int mask = slots.length - 1;
+        int slot = hash(x, y) & mask;
+        while (true){
+            int id = slots[slot];
+            if (id == EMPTY || (same(xs[id], x) && same(ys[id], y))){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns empty slots for a number of pairs.
+     *
+     * @param pairs the number of pairs the slots must hold
+     * @return an array of EMPTY slots, with a power of two length of at least twice pairs
+     */
+    private static int[] newSlots(int pairs){
+        int length = Integer.highestOneBit(Math.max(2 * pairs, 8) - 1) << 1;
+        int[] slots = new int[length];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    /**
+     * Returns whether two coordinates are the same.
+     *
+     * @param a a coordinate
+     * @param b a coordinate
+     * @return true iff a == b or both are NaN
+     */
+    private static boolean same(double a, double b){
+        return a == b || (a != a && b != b);
+    }
+
+    /**
+     * Hashes a pair, consistently with same.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return a hash of (x, y) whose low bits are well mixed
+     */
+    static int hash(double x, double y){
+        // Adding 0.0 turns -0.0 into 0.0, which is the same coordinate
+        long h = Double.doubleToLongBits(x + 0.0) * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(y + 0.0);
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(xs.length == ys.length);
+        assert(Integer.bitCount(slots.length) == 1 && 2 * xs.length <= slots.length);
+    }
+
+}
@@ -1,7 +1,5 @@
 package n.poulsen.campuspaths.model;
 
-import java.util.Objects;
-
 /**
  * <b>Coordinates</b> is an immutable representation of a coordinate.
  *
@@ -63,6 +61,9 @@ public class Coordinates {
      */
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Coordinates) {
             Coordinates c = (Coordinates) obj;
             return c.x == this.x && c.y == this.y;
@@ -71,13 +72,15 @@ public class Coordinates {
     }
 
     /**
-     * Standard hashCode function.
+     * Standard hashCode function. Mixes the bits of both coordinates without allocating, so that
+     * nearby coordinates spread over the buckets of a hash table, and hashes 0.0 and -0.0, which
+     * are equal, alike.
      *
      * @return an int that all objects equal to this will also return.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return CoordinateTable.hash(x, y);
     }
 
 }
\ No newline at end of file
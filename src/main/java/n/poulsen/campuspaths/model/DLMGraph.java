@@ -1,6 +1,7 @@
 package n.poulsen.campuspaths.model;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * <b>DLMGraph</b> is a mutable representation of the mathematical concept of a directed,
@@ -24,6 +25,12 @@ public class DLMGraph<E extends Object, F extends Object> {
     /** Holds all Nodes and edges of the graph, in an adjacency list */
     private Map<Node<E>, Set<DEdge<E, F>>> adjacencyList;
 
+    /**
+     * Holds all edges of the graph by the node they lead to, or null if this graph doesn't keep
+     * a reverse index
+     */
+    private final Map<Node<E>, Set<DEdge<E, F>>> reverseAdjacencyList;
+
     /** When TRUE, this variable enables checkReps() at the beginning and end of every method*/
     private final static boolean DEBUGGING = false;
 
@@ -48,15 +55,50 @@ public class DLMGraph<E extends Object, F extends Object> {
     //    forall n in N(g), forall e in C(g, n):
     //                (e != null &&
     //                e.getParentNode() = n &&
-    //                N(g).contains(e.getChildNode()))
+    //                N(g).contains(e.getChildNode())) &&
+    //    (g.reverseAdjacencyList == null ||
+    //        (g.reverseAdjacencyList.keySet() == N(g) &&
+    //        forall n in N(g): g.reverseAdjacencyList.get(n) is the set of edges e in E(g) with e.getChildNode() = n))
     //
 
     /** @spec.effects Constructs a new empty graph */
     public DLMGraph(){
-        adjacencyList = new HashMap<Node<E>, Set<DEdge<E, F>>>();
+        this(false);
+    }
+
+    /**
+     * @param reverseIndex whether the graph should also index its edges by the node they lead to.
+     *    This makes parents, inEdges and removeNode take time proportional to the degree of the node
+     *    rather than to the size of the graph, at the cost of a second set per node, kept up to
+     *    date by every modification.
+     * @spec.effects Constructs a new empty graph
+     */
+    public DLMGraph(boolean reverseIndex){
+        this(reverseIndex, 0);
+    }
+
+    /**
+     * @param reverseIndex whether the graph should also index its edges by the node they lead to
+     * @param expectedNodes the number of nodes the graph should hold without its tables growing
+     * @spec.requires expectedNodes >= 0
+     * @spec.effects Constructs a new empty graph
+     */
+    private DLMGraph(boolean reverseIndex, int expectedNodes){
+        int capacity = Math.max(capacity(expectedNodes), 16);
+        adjacencyList = new HashMap<Node<E>, Set<DEdge<E, F>>>(capacity);
+        reverseAdjacencyList = reverseIndex ? new HashMap<Node<E>, Set<DEdge<E, F>>>(capacity) : null;
         if (DEBUGGING) checkRep();
     }
 
+    /**
+     * Returns whether this graph indexes its edges by the node they lead to.
+     *
+     * @return true iff this graph was constructed with a reverse index
+     */
+    public boolean hasReverseIndex(){
+        return reverseAdjacencyList != null;
+    }
+
     /**
      * Returns the shortest path from a start node to a destination, in
      * a given graph.
@@ -74,41 +116,7 @@ public class DLMGraph<E extends Object, F extends Object> {
      *    dest cannot be reached from start.
      */
     public static <E extends Object> List<DEdge<E, Double>> dijkstra(DLMGraph<E, Double> marvel, Node<E> start, Node<E> dest){
-        if (start.equals(dest)) return new ArrayList<>();
-        // Queue of pairs of (path, totalCost) where totalCost is the total cost of path.
-        Queue<Pair<List<DEdge<E, Double>>, Double>> q = new PriorityQueue<>(1,
-                (p1, p2) -> p1.getValue().compareTo(p2.getValue()));
-        Set<Node<E>> finished = new HashSet<>();
-
-        List<DEdge<E, Double>> pathToItself = new ArrayList<>();
-        pathToItself.add(new DEdge<>(start, start, 0.0));
-        q.add(new Pair<>(pathToItself, 0.0));
-
-        while(!q.isEmpty()){
-            Pair<List<DEdge<E, Double>>, Double> head = q.remove();
-            List<DEdge<E, Double>> path = head.getKey();
-            Node<E> reached = path.get(path.size() - 1).getChildNode();
-            double distance = head.getValue();
-            if (reached.equals(dest)){
-                return path;
-            }
-            if (!finished.contains(reached)){
-                for (DEdge<E, Double> e: marvel.outEdges(reached)){
-                    if (!finished.contains(e.getChildNode())){
-                        List<DEdge<E, Double>> nextPath;
-                        if (e.getParentNode().equals(start)){
-                            nextPath = new ArrayList<>();
-                        }else {
-                            nextPath = new ArrayList<>(path);
-                        }
-                        nextPath.add(e);
-                        q.add(new Pair<>(nextPath, distance + e.getLabel()));
-                    }
-                }
-            }
-            finished.add(reached);
-        }
-        return null;
+        return DijkstraEngine.shortestPath(marvel, start, dest);
     }
 
     /**
@@ -135,7 +143,7 @@ public class DLMGraph<E extends Object, F extends Object> {
             if (head.equals(dest)){
                 return paths.get(head);
             }
-            List<DEdge<String, String>> children = new ArrayList<DEdge<String, String>>(marvel.outEdges(head));
+            List<DEdge<String, String>> children = new ArrayList<DEdge<String, String>>(marvel.outEdgesView(head));
             Collections.sort(children, (e1, e2) -> {
                 // Orders the next nodes to add to the queue by node name first, and edge name second
                 int firstTest = e1.getChildNode().getLabel().compareTo(e2.getChildNode().getLabel());
@@ -168,6 +176,9 @@ public class DLMGraph<E extends Object, F extends Object> {
     public boolean addNode(Node<E> n){
         if (DEBUGGING) checkRep();
         Set<DEdge<E, F>> oldValue = adjacencyList.putIfAbsent(n, new HashSet<DEdge<E, F>>());
+        if (oldValue == null && reverseAdjacencyList != null){
+            reverseAdjacencyList.put(n, new HashSet<DEdge<E, F>>());
+        }
         if (DEBUGGING) checkRep();
         return oldValue == null;
     }
@@ -213,6 +224,9 @@ public class DLMGraph<E extends Object, F extends Object> {
             throw new IllegalArgumentException("This edge can't be part of the graph, as at least one of its nodes isn't in it");
         }else if (!s.contains(e)){
             added = s.add(e);
+            if (reverseAdjacencyList != null){
+                reverseAdjacencyList.get(e.getChildNode()).add(e);
+            }
         }
         if (DEBUGGING) checkRep();
         return added;
@@ -286,7 +300,18 @@ public class DLMGraph<E extends Object, F extends Object> {
     public boolean removeNode(Node<E> n){
         if (DEBUGGING) checkRep();
         boolean removed = false;
-        if (contains(n)){
+        if (contains(n) && reverseAdjacencyList != null){
+            // Only the sets of n's parents and children hold edges to or from n
+            Set<DEdge<E, F>> out = adjacencyList.remove(n);
+            Set<DEdge<E, F>> in = reverseAdjacencyList.remove(n);
+            for (DEdge<E, F> e: in){
+                if (!e.getParentNode().equals(n)) adjacencyList.get(e.getParentNode()).remove(e);
+            }
+            for (DEdge<E, F> e: out){
+                if (!e.getChildNode().equals(n)) reverseAdjacencyList.get(e.getChildNode()).remove(e);
+            }
+            removed = true;
+        }else if (contains(n)){
             adjacencyList.remove(n);
             // I could have used edgeIterator() here, but it would have been
             // less efficient
@@ -320,6 +345,9 @@ public class DLMGraph<E extends Object, F extends Object> {
         if (s != null){
             removed = s.remove(e);
         }
+        if (removed && reverseAdjacencyList != null){
+            reverseAdjacencyList.get(e.getChildNode()).remove(e);
+        }
         if (DEBUGGING) checkRep();
         return removed;
     }
@@ -410,7 +438,11 @@ public class DLMGraph<E extends Object, F extends Object> {
     public Set<Node<E>> parents(Node<E> n){
         if (DEBUGGING) checkRep();
         Set<Node<E>> s = new HashSet<Node<E>>();
-        if (n != null && contains(n)) {
+        if (n != null && contains(n) && reverseAdjacencyList != null) {
+            for (DEdge<E, F> e: reverseAdjacencyList.get(n)) {
+                s.add(e.getParentNode());
+            }
+        }else if (n != null && contains(n)) {
             // I could have used edgeIterator() here, but it would have been
             // less efficient
             for (Node<E> a: adjacencyList.keySet()) {
@@ -430,7 +462,8 @@ public class DLMGraph<E extends Object, F extends Object> {
      * @param n the node to return the children's from
      * @spec.requires n != null
      * @spec.requires n is contained in this graph
-     * @return a set containing all edges which have the specified node as the parent.
+     * @return a new set containing all edges which have the specified node as the parent. Callers
+     *    that only read the edges should use outEdgesView or forEachOutEdge, which don't copy them.
      */
     public Set<DEdge<E, F>> outEdges(Node<E> n){
         if (DEBUGGING) checkRep();
@@ -445,6 +478,44 @@ public class DLMGraph<E extends Object, F extends Object> {
         return copy;
     }
 
+    /**
+     * Returns a read-only view of the edges which have the specified node as the parent, without
+     * copying them. Unlike outEdges, the view reflects later changes to this graph, so this graph
+     * must not be modified while the view is being iterated over.
+     *
+     * @param n the node to return the children's from
+     * @spec.requires n != null
+     * @return an unmodifiable view of the set of all edges which have n as the parent, empty if n
+     *    isn't in this graph
+     */
+    public Set<DEdge<E, F>> outEdgesView(Node<E> n){
+        if (DEBUGGING) checkRep();
+        Set<DEdge<E, F>> s = adjacencyList.get(n);
+        return s == null ? Collections.<DEdge<E, F>>emptySet() : Collections.unmodifiableSet(s);
+    }
+
+    /**
+     * Performs an action for each edge which has the specified node as the parent, without copying
+     * them. The action must not modify this graph.
+     *
+     * @param n the node whose out edges to visit
+     * @param action the action to perform on each edge
+     * @spec.requires n != null
+     * @spec.requires action != null
+     * @spec.effects Calls action once with every edge which has n as the parent, in no particular
+     *    order, or never if n isn't in this graph
+     */
+    public void forEachOutEdge(Node<E> n, Consumer<? super DEdge<E, F>> action){
+        if (DEBUGGING) checkRep();
+        Set<DEdge<E, F>> s = adjacencyList.get(n);
+        if (s != null){
+            for (DEdge<E, F> e: s){
+                action.accept(e);
+            }
+        }
+        if (DEBUGGING) checkRep();
+    }
+
     /**
      * Returns all edges which have the specified node as the child.
      *
@@ -456,7 +527,9 @@ public class DLMGraph<E extends Object, F extends Object> {
     public Set<DEdge<E, F>> inEdges(Node<E> n){
         if (DEBUGGING) checkRep();
         Set<DEdge<E, F>> s = new HashSet<DEdge<E, F>>();
-        if (n != null && contains(n)) {
+        if (n != null && contains(n) && reverseAdjacencyList != null) {
+            s.addAll(reverseAdjacencyList.get(n));
+        }else if (n != null && contains(n)) {
             // I could have used edgeIterator() here, but it would have been
             // less efficient
             for (Node<E> a: adjacencyList.keySet()) {
@@ -569,8 +642,156 @@ public class DLMGraph<E extends Object, F extends Object> {
                 assert(e != null);
                 assert(e.getParentNode().equals(n));
                 assert(adjacencyList.containsKey(e.getChildNode()));
+                assert(reverseAdjacencyList == null || reverseAdjacencyList.get(e.getChildNode()).contains(e));
+            }
+        }
+        if (reverseAdjacencyList != null){
+            assert(reverseAdjacencyList.keySet().equals(adjacencyList.keySet()));
+            for (Node<E> n: reverseAdjacencyList.keySet()){
+                for (DEdge<E, F> e: reverseAdjacencyList.get(n)){
+                    assert(e.getChildNode().equals(n));
+                    assert(adjacencyList.get(e.getParentNode()).contains(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * <b>Builder</b> assembles a DLMGraph from a batch of nodes and edges, faster than adding them
+     * one at a time to a graph. Its hash tables are sized up front from the expected numbers of nodes
+     * and edges, the nodes of an edge are added along with it, and each edge costs a single hash
+     * table insertion, which also drops duplicates. A builder produces one graph: once build has
+     * been called, it can't be used any more.
+     *
+     * @param <E> the type of label in the nodes of the graph built
+     * @param <F> the type of label in the edges of the graph built
+     */
+    public static final class Builder<E extends Object, F extends Object> {
+
+        /** The graph being built, or null once it was built */
+        private DLMGraph<E, F> graph;
+
+        /** The initial capacity of the set of edges leaving a node when the number of edges isn't known */
+        private static final int DEFAULT_EDGES_PER_NODE = 16;
+
+        /** The initial capacity of the set of edges leaving each node */
+        private final int edgesPerNode;
+
+        /**
+         * @param expectedNodes the number of nodes the graph is expected to have, or 0 if it isn't known
+         * @param expectedEdges the number of edges the graph is expected to have
+         * @param reverseIndex whether the graph built keeps a reverse index, as DLMGraph(boolean)
+         * @spec.requires expectedNodes >= 0 && expectedEdges >= 0
+         * @spec.effects Constructs a new builder of an empty graph
+         */
+        public Builder(int expectedNodes, int expectedEdges, boolean reverseIndex){
+            graph = new DLMGraph<>(reverseIndex, expectedNodes);
+            if (expectedNodes == 0){
+                edgesPerNode = DEFAULT_EDGES_PER_NODE;
+            }else{
+                edgesPerNode = capacity((expectedEdges + expectedNodes - 1) / expectedNodes);
+            }
+        }
+
+        /**
+         * @param expectedNodes the number of nodes the graph is expected to have, or 0 if it isn't known
+         * @param expectedEdges the number of edges the graph is expected to have
+         * @spec.requires expectedNodes >= 0 && expectedEdges >= 0
+         * @spec.effects Constructs a new builder of an empty graph, without a reverse index
+         */
+        public Builder(int expectedNodes, int expectedEdges){
+            this(expectedNodes, expectedEdges, false);
+        }
+
+        /**
+         * Adds a node to the graph being built, unless it was already added.
+         *
+         * @param n the node to add
+         * @spec.requires n != null
+         * @spec.modifies this
+         * @return this builder
+         * @throws IllegalStateException if the graph was already built
+         */
+        public Builder<E, F> addNode(Node<E> n){
+            node(n);
+            return this;
+        }
+
+        /**
+         * Adds an edge to the graph being built, unless an equal edge was already added, along with
+         * its parent and child nodes.
+         *
+         * @param e the edge to add
+         * @spec.requires e != null
+         * @spec.modifies this
+         * @return this builder
+         * @throws IllegalStateException if the graph was already built
+         */
+        public Builder<E, F> addEdge(DEdge<E, F> e){
+            Set<DEdge<E, F>> out = node(e.getParentNode());
+            node(e.getChildNode());
+            if (out.add(e) && graph.reverseAdjacencyList != null){
+                graph.reverseAdjacencyList.get(e.getChildNode()).add(e);
             }
+            return this;
         }
+
+        /**
+         * Returns the graph built, and ends the use of this builder.
+         *
+         * @return a graph of every node and edge added to this builder
+         * @throws IllegalStateException if the graph was already built
+         */
+        public DLMGraph<E, F> build(){
+            DLMGraph<E, F> built = graph();
+            graph = null;
+            if (DEBUGGING) built.checkRep();
+            return built;
+        }
+
+        /**
+         * Returns the set of edges leaving a node, adding the node first if needed.
+         *
+         * @param n the node
+         * @return the set of edges leaving n in the graph being built
+         * @throws IllegalStateException if the graph was already built
+         */
+        private Set<DEdge<E, F>> node(Node<E> n){
+            DLMGraph<E, F> g = graph();
+            Set<DEdge<E, F>> out = g.adjacencyList.get(n);
+            if (out == null){
+                out = new HashSet<DEdge<E, F>>(edgesPerNode);
+                g.adjacencyList.put(n, out);
+                if (g.reverseAdjacencyList != null){
+                    g.reverseAdjacencyList.put(n, new HashSet<DEdge<E, F>>(edgesPerNode));
+                }
+            }
+            return out;
+        }
+
+        /**
+         * Returns the graph being built.
+         *
+         * @return the graph being built
+         * @throws IllegalStateException if it was already built
+         */
+        private DLMGraph<E, F> graph(){
+            if (graph == null){
+                throw new IllegalStateException("The graph was already built");
+            }
+            return graph;
+        }
+
+    }
+
+    /**
+     * Returns the initial capacity of a hash table that holds a number of entries without growing.
+     *
+     * @param entries the number of entries
+     * @return a capacity large enough for entries at the default load factor
+     */
+    private static int capacity(int entries){
+        return (int) Math.min(Integer.MAX_VALUE, entries * 4L / 3 + 1);
     }
 
     /**
@@ -641,6 +862,9 @@ public class DLMGraph<E extends Object, F extends Object> {
          */
         @Override
         public boolean equals(Object obj){
+            if (obj == this){
+                return true;
+            }
             if (obj instanceof Node<?>){
                 Node<?> e = (Node<?>) obj;
                 return e.label.equals(this.label);
@@ -651,11 +875,11 @@ public class DLMGraph<E extends Object, F extends Object> {
         /**
          * Standard hashCode function.
          *
-         * @return an int that all objects equal to this will also return.
+         * @return an int that all objects equal to this will also return: the hash code of label
          */
         @Override
         public int hashCode(){
-            return Objects.hashCode(label);
+            return label.hashCode();
         }
 
         /** Checks that the representation invariant holds (if any). */
@@ -777,6 +1001,9 @@ public class DLMGraph<E extends Object, F extends Object> {
          */
         @Override
         public boolean equals(Object obj){
+            if (obj == this){
+                return true;
+            }
             if (obj instanceof DEdge<?, ?>){
                 DEdge<? ,?> e = (DEdge<?, ?>) obj;
                 return e.child.equals(this.child) && e.parent.equals(this.parent) && e.label.equals(this.label);
@@ -785,13 +1012,14 @@ public class DLMGraph<E extends Object, F extends Object> {
         }
 
         /**
-         * Standard hashCode function.
+         * Standard hashCode function. The parent and child hashes are combined asymmetrically, so
+         * that an edge and its reverse, which graphs of two-way paths always both hold, don't collide.
          *
          * @return an int that all objects equal to this will also return.
          */
         @Override
         public int hashCode(){
-            return Objects.hashCode(child) + Objects.hashCode(parent) + Objects.hashCode(label);
+            return 31 * (31 * parent.hashCode() + child.hashCode()) + label.hashCode();
         }
 
         /** Checks that the representation invariant holds (if any). */
@@ -803,67 +1031,4 @@ public class DLMGraph<E extends Object, F extends Object> {
 
     }
 
-    /**
-     * A class representing a pair of objects. A pair contains a key of
-     * generic type K and a value of generic type V.
-     *
-     * @param <K> the type of the key
-     * @param <V> the type of the value
-     */
-    private static class Pair<K extends Object, V extends Object> {
-
-        /** The key of the pair */
-        private K key;
-
-        /** the value of the pair */
-        private V value;
-
-        // Abstraction function:
-        //    Pair p represents a pair of values p = (k, v), where k is
-        //    of type K and v is of type V.
-        //
-        // Representation invariant for every Pair p:
-        //    p.key != null &&
-        //    p.value != null
-
-        /**
-         * Creates a new pair with key K and value V
-         *
-         * @param key
-         * @param value
-         */
-        private Pair(K key, V value){
-            this.key = key;
-            this.value = value;
-            checkRep();
-        }
-
-        /**
-         * Returns this pair's key
-         *
-         * @return the key in this
-         */
-        private K getKey(){
-            checkRep();
-            return key;
-        }
-
-        /**
-         * Returns this pair's value
-         *
-         * @return the value in this
-         */
-        private V getValue(){
-            checkRep();
-            return value;
-        }
-
-        /** Checks that the representation invariant holds (if any). */
-        private void checkRep(){
-            assert(key != null);
-            assert(value != null);
-        }
-
-    }
-
 }
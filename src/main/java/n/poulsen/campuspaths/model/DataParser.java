@@ -3,11 +3,16 @@ package n.poulsen.campuspaths.model;
 import n.poulsen.campuspaths.model.CampusMap.*;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -52,6 +57,31 @@ public class DataParser {
         }
     }
 
+    /**
+     * A receiver of the paths read by streamPathData, given as the coordinates of their ends and
+     * their distance so that no object needs to be created per path.
+     */
+    @FunctionalInterface
+    public interface PathConsumer {
+
+        /**
+         * Receives one path.
+         *
+         * @param originX the x coordinate of the path's origin
+         * @param originY the y coordinate of the path's origin
+         * @param destinationX the x coordinate of the path's destination
+         * @param destinationY the y coordinate of the path's destination
+         * @param distance the path's distance, which is positive
+         */
+        void accept(double originX, double originY, double destinationX, double destinationY, double distance);
+    }
+
+    /**
+     * The largest number of bytes of a file mapped at once by streamPathData. Files larger than this
+     * are read in several windows, split at line breaks.
+     */
+    static final int MAPPED_WINDOW = 1 << 30;
+
     /**
      * Reads the campus paths dataset. Each line of the input file contains the path's origin coordinates,
      * as two rational values seperated by a comma, the path's destination coordinates in the same format,
@@ -65,58 +95,117 @@ public class DataParser {
      *     tokens separated by a tab, or else starting with a # symbol to indicate a comment line
      */
     public static List<Path> parsePathData(String filename) throws MalformedDataException {
-        BufferedReader reader = null;
         List<Path> paths = new ArrayList<>();
         try {
-            reader = Files.newBufferedReader(Paths.get(filename), Charset.defaultCharset());
-
-            String inputLine;
-            //Ignores first line, which contains TSV header (name of columns)
-            reader.readLine();
-            while ((inputLine = reader.readLine()) != null) {
+            streamPathData(filename, (originX, originY, destinationX, destinationY, distance) ->
+                    paths.add(new Path(new Coordinates(originX, originY), new Coordinates(destinationX, destinationY), distance)));
+        } catch (IOException e) {
+            System.err.println(e.toString());
+            e.printStackTrace(System.err);
+        }
+        return paths;
+    }
 
-                // Ignore comment lines.
-                if (inputLine.startsWith("#")) {
-                    continue;
-                }
+    /**
+     * Reads the campus paths dataset, in the format described in parsePathData, and passes every path
+     * to a consumer as soon as it is read. The file is memory-mapped and numbers are parsed from its
+     * bytes, without creating any object per line.
+     *
+     * @param filename the file that will be read
+     * @param consumer the consumer of the paths in the file
+     * @spec.requires filename != null && consumer != null
+     * @spec.effects calls consumer.accept once for every path in the file, in the order of the file
+     * @throws MalformedDataException if the file is not well-formed, after passing the paths before
+     *     the malformed line to consumer
+     * @throws IOException if the file can't be read
+     */
+    public static void streamPathData(String filename, PathConsumer consumer) throws MalformedDataException, IOException {
+        scanWindows(filename, (window, from, to) -> new PathDataScanner(window, from, to).scan(consumer));
+    }
 
-                // As seen in post 520 on Piazza
-                @SuppressWarnings("StringSplitter")
-                String[] tokens = inputLine.split("\t");
-                if (tokens.length != 3) {
-                    throw new MalformedDataException("Line should contain exactly two tabs: " + inputLine);
-                }
+    /**
+     * Reads the campus paths dataset like streamPathData, parsing parts of the file in parallel. The
+     * file is split at line breaks into chunks which are parsed by the tasks of a fork-join pool, and
+     * the paths of every chunk are then passed to the consumer, on the calling thread, in the order
+     * of the file. The consumer thus sees exactly the same sequence of paths as with streamPathData,
+     * and anything it builds, such as node ids assigned in order of appearance, is the same on every run.
+     *
+     * @param filename the file that will be read
+     * @param pool the pool on which chunks are parsed
+     * @param consumer the consumer of the paths in the file
+     * @spec.requires filename != null && pool != null && consumer != null
+     * @spec.effects calls consumer.accept once for every path in the file, in the order of the file
+     * @throws MalformedDataException if the file is not well-formed, after passing the paths before
+     *     the malformed line to consumer
+     * @throws IOException if the file can't be read
+     */
+    public static void streamPathDataInParallel(String filename, ForkJoinPool pool, PathConsumer consumer)
+            throws MalformedDataException, IOException {
+        scanWindows(filename, (window, from, to) -> ParallelPathScan.scan(window, from, to, pool, consumer));
+    }
 
-                Coordinates origin;
-                Coordinates destination;
+    /** Scans the whole lines between two positions of a mapped window of a paths file */
+    @FunctionalInterface
+    private interface WindowScanner {
 
-                try{
-                    origin = parseCoordinates(tokens[0]);
-                    destination = parseCoordinates(tokens[1]);
-                }catch(IllegalArgumentException e){
-                    throw new MalformedDataException("Line coordinates not well formatted: " + inputLine, e);
-                }
+        /**
+         * Scans the lines of a window.
+         *
+         * @param window the mapped part of the file
+         * @param from the position of the first line to scan
+         * @param to the position one past the end of the last line to scan
+         * @throws MalformedDataException if a line is not well-formed
+         */
+        void scan(ByteBuffer window, int from, int to) throws MalformedDataException;
+    }
 
-                Double distance = Double.parseDouble(tokens[2]);
-                if (distance <= 0){
-                    throw new MalformedDataException("Negative distance in file");
+    /**
+     * Maps a paths file, in windows of at most MAPPED_WINDOW bytes that end at line breaks, and scans
+     * the lines of each window but the header line.
+     *
+     * @param filename the file that will be read
+     * @param scanner the scanner of the windows
+     * @throws MalformedDataException if the file is not well-formed
+     * @throws IOException if the file can't be read
+     */
+    private static void scanWindows(String filename, WindowScanner scanner) throws MalformedDataException, IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean header = true;
+            while (position < size) {
+                int length = (int) Math.min(MAPPED_WINDOW, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = length;
+                if (position + length < size) {
+                    // Only whole lines are scanned; the rest of the window starts the next one
+                    end = lastLine(window, length);
+                    if (end == 0) {
+                        throw new MalformedDataException("Line longer than " + MAPPED_WINDOW + " bytes");
+                    }
                 }
-                paths.add(new Path(origin, destination, distance));
+                int start = header ? PathDataScanner.nextLine(window, 0, end) : 0;
+                header = false;
+                scanner.scan(window, start, end);
+                position += end;
             }
-        } catch (IOException e) {
-            System.err.println(e.toString());
-            e.printStackTrace(System.err);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    System.err.println(e.toString());
-                    e.printStackTrace(System.err);
-                }
+        }
+    }
+
+    /**
+     * Returns the position after the last line break in the beginning of a buffer.
+     *
+     * @param buffer the buffer to search
+     * @param length the number of bytes of the buffer to search
+     * @return the position after the last line break before length, or 0 if there is none
+     */
+    private static int lastLine(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
             }
         }
-        return paths;
+        return 0;
     }
 
     /**
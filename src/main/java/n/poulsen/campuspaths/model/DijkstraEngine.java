@@ -0,0 +1,163 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import java.util.*;
+
+/**
+ * <b>DijkstraEngine</b> finds shortest paths in a DLMGraph whose edges are labeled with positive
+ * distances. Instead of queueing a copy of the path leading to every reached node, it keeps, for
+ * each node, the best distance found so far and the edge through which that distance was reached.
+ * The path is rebuilt once, by following those edges back from the destination.
+ *
+ * Nodes are given dense integer ids in the order in which the search discovers them, so that all
+ * per-node state is held in arrays sized by the number of nodes in the graph, and the queue of
+ * reached nodes is an IndexedMinHeap holding each node at most once.
+ *
+ * @param <E> the type of label in the nodes of the graph searched
+ */
+final class DijkstraEngine<E extends Object> {
+
+    /** The graph in which paths are searched */
+    private final DLMGraph<E, Double> graph;
+
+    /** Maps every node discovered by the search to its id */
+    private final Map<Node<E>, Integer> ids;
+
+    /** The node with a given id */
+    private final List<Node<E>> nodes;
+
+    /** The shortest known distance from the start node to the node with a given id */
+    private final double[] distance;
+
+    /** The last edge on the shortest known path to the node with a given id */
+    private final DEdge<E, Double>[] predecessor;
+
+    /** Whether the distance to the node with a given id is final */
+    private final boolean[] settled;
+
+    /** The ids of the reached but not yet settled nodes, by distance from the start node */
+    private final IndexedMinHeap queue;
+
+    // Abstraction function:
+    //    A DijkstraEngine d represents a (possibly partial) shortest path tree rooted at the start node
+    //    of its search. For every id i < nodes.size(), nodes.get(i) is in the tree at distance distance[i],
+    //    and is reached through predecessor[i] (null for the start node).
+    //
+    // Representation invariant for every DijkstraEngine d:
+    //    graph != null && ids != null && nodes != null && queue != null &&
+    //    ids.size() == nodes.size() && nodes.size() <= graph.numberOfNodes() &&
+    //    forall i < nodes.size(): ids.get(nodes.get(i)) == i
+
+    /**
+     * @param graph the graph in which to find paths
+     * @spec.requires graph != null
+     * @spec.effects Constructs a new engine that searches graph
+     */
+    private DijkstraEngine(DLMGraph<E, Double> graph){
+        this.graph = graph;
+        int capacity = graph.numberOfNodes();
+        this.ids = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.distance = new double[capacity];
+        this.predecessor = newEdgeArray(capacity);
+        this.settled = new boolean[capacity];
+        this.queue = new IndexedMinHeap(capacity);
+    }
+
+    /**
+     * Returns the shortest path from a start node to a destination, in a given graph.
+     *
+     * @spec.requires graph != null
+     * @spec.requires start != null
+     * @spec.requires dest != null
+     * @spec.requires graph contains only edges with positive labels
+     * @param <E> the type of label in the nodes (i.e, Node is of generic type E)
+     * @param graph the graph in which to find the path
+     * @param start the node from which to start the path
+     * @param dest the node to reach from start
+     * @return the shortest path from start to dest in graph, and null if dest cannot be reached
+     *    from start.
+     */
+    static <E extends Object> List<DEdge<E, Double>> shortestPath(DLMGraph<E, Double> graph, Node<E> start, Node<E> dest){
+        if (start.equals(dest)) return new ArrayList<>();
+        if (!graph.contains(start) || !graph.contains(dest)) return null;
+        return new DijkstraEngine<>(graph).search(start, dest);
+    }
+
+    /**
+     * Runs the search from start until dest is settled.
+     *
+     * @param start the node from which to start the path
+     * @param dest the node to reach from start
+     * @return the shortest path from start to dest, or null if dest cannot be reached from start
+     */
+    private List<DEdge<E, Double>> search(Node<E> start, Node<E> dest){
+        int s = idOf(start);
+        distance[s] = 0;
+        queue.offer(s, 0);
+        while (!queue.isEmpty()){
+            int u = queue.poll();
+            settled[u] = true;
+            Node<E> reached = nodes.get(u);
+            if (reached.equals(dest)){
+                return pathTo(u);
+            }
+            for (DEdge<E, Double> e: graph.outEdgesView(reached)){
+                int v = idOf(e.getChildNode());
+                double d = distance[u] + e.getLabel();
+                if (!settled[v] && d < distance[v]){
+                    distance[v] = d;
+                    predecessor[v] = e;
+                    queue.offer(v, d);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rebuilds the path from the start node to the node with the given id.
+     *
+     * @param id the id of the last node on the path
+     * @return the list of edges from the start node to the node with the given id
+     */
+    private List<DEdge<E, Double>> pathTo(int id){
+        List<DEdge<E, Double>> path = new ArrayList<>();
+        DEdge<E, Double> e = predecessor[id];
+        while (e != null){
+            path.add(e);
+            e = predecessor[ids.get(e.getParentNode())];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the id of the given node, giving it the next free id if it hasn't been discovered yet.
+     *
+     * @param n the node whose id is wanted
+     * @return the id of n
+     */
+    private int idOf(Node<E> n){
+        Integer id = ids.get(n);
+        if (id == null){
+            id = nodes.size();
+            ids.put(n, id);
+            nodes.add(n);
+            distance[id] = Double.POSITIVE_INFINITY;
+        }
+        return id;
+    }
+
+    /**
+     * Creates a new array of edges.
+     *
+     * @param length the length of the array
+     * @return a new array of edges of the given length, filled with null
+     */
+    @SuppressWarnings("unchecked")
+    private DEdge<E, Double>[] newEdgeArray(int length){
+        return (DEdge<E, Double>[]) new DEdge<?, ?>[length];
+    }
+
+}
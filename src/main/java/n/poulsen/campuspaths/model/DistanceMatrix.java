@@ -0,0 +1,107 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <b>DistanceMatrix</b> is an immutable table of the lengths of the shortest paths from a list of
+ * source buildings to a list of target buildings, without the paths themselves.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield sources: the abbreviated names of the buildings the paths start at, one per row
+ *   @spec.specfield targets: the abbreviated names of the buildings the paths end at, one per column
+ *   @spec.specfield distances: the length of the shortest path from each source to each target, or
+ *                              none if there is no such path
+ */
+public final class DistanceMatrix {
+
+    /** The abbreviated names of the buildings the paths start at */
+    private final List<String> sources;
+
+    /** The abbreviated names of the buildings the paths end at */
+    private final List<String> targets;
+
+    /** The distance from source i to target j at i * targets.size() + j, or infinity if there is no path */
+    private final double[] distances;
+
+    // Abstraction function:
+    //    DistanceMatrix m represents the table whose entry for sources.get(i) and targets.get(j) is
+    //    distances[i * targets.size() + j] if it is finite, and no path otherwise.
+    //
+    // Representation invariant for every DistanceMatrix m:
+    //    sources != null && targets != null &&
+    //    distances.length == sources.size() * targets.size() &&
+    //    forall i: distances[i] >= 0
+
+    /**
+     * @param sources the abbreviated names of the buildings the paths start at
+     * @param targets the abbreviated names of the buildings the paths end at
+     * @param distances the distance from source i to target j at i * targets.size() + j, or infinity
+     * @spec.requires distances.length == sources.size() * targets.size()
+     * @spec.effects Constructs a new DistanceMatrix. The lists are copied, but the array isn't and
+     *    must not be modified afterwards.
+     */
+    DistanceMatrix(List<String> sources, List<String> targets, double[] distances){
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
+        this.distances = distances;
+        checkRep();
+    }
+
+    /**
+     * Returns the buildings the paths start at.
+     *
+     * @return an unmodifiable list of the abbreviated names of the source buildings, in row order
+     */
+    public List<String> getSources(){
+        return sources;
+    }
+
+    /**
+     * Returns the buildings the paths end at.
+     *
+     * @return an unmodifiable list of the abbreviated names of the target buildings, in column order
+     */
+    public List<String> getTargets(){
+        return targets;
+    }
+
+    /**
+     * Returns the length of the shortest path from a source to a target.
+     *
+     * @param i the row of the source
+     * @param j the column of the target
+     * @spec.requires 0 <= i < getSources().size() && 0 <= j < getTargets().size()
+     * @return the length of the shortest path from source i to target j, or
+     *    Double.POSITIVE_INFINITY if there is none
+     */
+    public double distance(int i, int j){
+        return distances[i * targets.size() + j];
+    }
+
+    /**
+     * Returns the rows of this matrix.
+     *
+     * @return a list holding, for every source in order, the list of the lengths of the shortest
+     *    paths from it to every target in order, with null for the targets it can't reach
+     */
+    public List<List<Double>> getDistances(){
+        List<List<Double>> rows = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++){
+            List<Double> row = new ArrayList<>(targets.size());
+            for (int j = 0; j < targets.size(); j++){
+                double d = distance(i, j);
+                row.add(d < Double.POSITIVE_INFINITY ? d : null);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(distances.length == sources.size() * targets.size());
+    }
+
+}
@@ -0,0 +1,196 @@
+package n.poulsen.campuspaths.model;
+
+/**
+ * <b>EdgeSnap</b> is an immutable point of a CompactGraph lying on one of its edges, typically the
+ * point of the graph nearest to some location, found by a SegmentIndex.
+ *
+ * A route from or to such a point is searched for as if the point were a virtual node splitting the
+ * edge, without modifying the graph: from the point, a route can follow the edge to its target, or,
+ * if the graph also has the reverse edge, back to its source, over the matching fraction of the
+ * edge's weight. The nodes a route leaves the point through, with those partial weights, are its
+ * exits, and the nodes a route reaches the point from are its entries.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield edge: the id of the edge the point lies on
+ *   @spec.specfield fraction: the position of the point along edge, from 0 at its source to 1 at its target
+ *   @spec.specfield point: the coordinates of the point
+ *   @spec.specfield distance: the distance from the located position to point
+ */
+public final class EdgeSnap {
+
+    /** The id of the edge the point lies on */
+    private final int edge;
+
+    /** The id of the edge from the target of edge to its source, or -1 if there is none */
+    private final int reverse;
+
+    /** The weight of edge */
+    private final double weight;
+
+    /** The weight of reverse, if there is one */
+    private final double reverseWeight;
+
+    /** The position of the point along edge, from 0 at its source to 1 at its target */
+    private final double fraction;
+
+    /** The coordinates of the point */
+    private final Coordinates point;
+
+    /** The distance from the located position to point */
+    private final double distance;
+
+    /** The nodes routes from the point go through first */
+    private final int[] exits;
+
+    /** The distance from the point to each of exits */
+    private final double[] exitDistances;
+
+    /** The nodes routes to the point go through last */
+    private final int[] entries;
+
+    /** The distance from each of entries to the point */
+    private final double[] entryDistances;
+
+    // Abstraction function:
+    //    EdgeSnap s represents the point at fraction of edge in its graph, at distance distance from
+    //    the position it was found for.
+    //
+    // Representation invariant for every EdgeSnap s:
+    //    0 <= fraction <= 1 && point != null && distance >= 0 &&
+    //    exits.length == exitDistances.length == entries.length == entryDistances.length ==
+    //        (reverse == -1 ? 1 : 2)
+
+    /**
+     * @param g the graph the point lies in
+     * @param edge the id of the edge the point lies on
+     * @param reverse the id of the edge of g from the target of edge to its source, or -1 if there is none
+     * @param fraction the position of the point along edge
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param distance the distance from the located position to the point
+     * @spec.requires g != null && 0 <= edge < g.numberOfEdges() && 0 <= fraction <= 1 && distance >= 0
+     * @spec.effects Constructs a new EdgeSnap at (x, y), at fraction of edge
+     */
+    EdgeSnap(CompactGraph g, int edge, int reverse, double fraction, double x, double y, double distance){
+        this.edge = edge;
+        this.reverse = reverse;
+        this.weight = g.weight(edge);
+        this.reverseWeight = reverse < 0 ? Double.POSITIVE_INFINITY : g.weight(reverse);
+        this.fraction = fraction;
+        this.point = new Coordinates(x, y);
+        this.distance = distance;
+        int u = g.source(edge);
+        int v = g.target(edge);
+        if (reverse < 0){
+            exits = new int[]{v};
+            exitDistances = new double[]{(1 - fraction) * weight};
+            entries = new int[]{u};
+            entryDistances = new double[]{fraction * weight};
+        }else{
+            exits = new int[]{v, u};
+            exitDistances = new double[]{(1 - fraction) * weight, fraction * reverseWeight};
+            entries = new int[]{u, v};
+            entryDistances = new double[]{fraction * weight, (1 - fraction) * reverseWeight};
+        }
+        checkRep();
+    }
+
+    /**
+     * Returns the edge the point lies on.
+     *
+     * @return the id of the edge the point lies on
+     */
+    public int edge(){
+        return edge;
+    }
+
+    /**
+     * Returns the position of the point along its edge.
+     *
+     * @return the position of the point along edge, from 0 at its source to 1 at its target
+     */
+    public double fraction(){
+        return fraction;
+    }
+
+    /**
+     * Returns the point.
+     *
+     * @return the coordinates of the point
+     */
+    public Coordinates point(){
+        return point;
+    }
+
+    /**
+     * Returns the distance from the position the point was found for to the point.
+     *
+     * @return the straight-line distance from the located position to the point
+     */
+    public double distance(){
+        return distance;
+    }
+
+    /**
+     * Returns the distance from this point to another one along the edge they both lie on.
+     *
+     * @param other the point to reach
+     * @spec.requires other != null && other lies in the same graph as this
+     * @return the weight of the part of edge between this and other, if other is on edge no
+     *    further from its source than this or if the reverse edge can be followed back to it, or
+     *    else infinity
+     */
+    double distanceAlongEdge(EdgeSnap other){
+        if (other.edge != edge){
+            return Double.POSITIVE_INFINITY;
+        }
+        if (other.fraction >= fraction){
+            return (other.fraction - fraction) * weight;
+        }
+        return (fraction - other.fraction) * reverseWeight;
+    }
+
+    /**
+     * Returns the nodes a route from this point goes through first.
+     *
+     * @return the ids of the nodes the virtual node at this point has edges to
+     */
+    int[] exits(){
+        return exits;
+    }
+
+    /**
+     * Returns the weights of the edges from this point to each of exits().
+     *
+     * @return the distance from this point to each of exits(), along edge or its reverse
+     */
+    double[] exitDistances(){
+        return exitDistances;
+    }
+
+    /**
+     * Returns the nodes a route to this point goes through last.
+     *
+     * @return the ids of the nodes that have edges to the virtual node at this point
+     */
+    int[] entries(){
+        return entries;
+    }
+
+    /**
+     * Returns the weights of the edges from each of entries() to this point.
+     *
+     * @return the distance from each of entries() to this point, along edge or its reverse
+     */
+    double[] entryDistances(){
+        return entryDistances;
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(0 <= fraction && fraction <= 1);
+        assert(point != null && distance >= 0);
+        assert(exits.length == (reverse < 0 ? 1 : 2) && entries.length == exits.length);
+    }
+
+}
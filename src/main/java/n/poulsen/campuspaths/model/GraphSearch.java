@@ -0,0 +1,405 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.Arrays;
+
+/**
+ * Contains shortest path searches on CompactGraphs. The graphs searched must only contain
+ * edges with positive weights.
+ */
+public final class GraphSearch {
+
+    /** Marks a node that hasn't been reached through any edge */
+    private static final int NONE = -1;
+
+    /** The distance of the only node a search starts from, or ends at */
+    private static final double[] NO_DISTANCE = {0};
+
+    /** Not instantiable */
+    private GraphSearch(){}
+
+    /**
+     * Returns the shortest route from a start node to a destination, using Dijkstra's algorithm.
+     *
+     * @param g the graph in which to find the route
+     * @param start the id of the node from which to start the route
+     * @param dest the id of the node to reach from start
+     * @spec.requires g != null
+     * @spec.requires 0 <= start, dest < g.numberOfNodes()
+     * @return the shortest route from start to dest in g, or null if dest cannot be reached from start
+     */
+    public static Route dijkstra(CompactGraph g, int start, int dest){
+        return search(g, new int[]{start}, NO_DISTANCE, new int[]{dest}, NO_DISTANCE, 0);
+    }
+
+    /**
+     * Returns the shortest route from a virtual start node to a virtual destination, using Dijkstra's
+     * algorithm. The virtual start node has an edge to each of starts, of the weight given by
+     * startDistances, and each of dests has an edge to the virtual destination, of the weight given
+     * by destDistances. This is how a route from or to a point in the middle of an edge is found,
+     * without adding that point to g.
+     *
+     * @param g the graph in which to find the route
+     * @param starts the ids of the nodes the virtual start node has edges to
+     * @param startDistances the weights of the edges from the virtual start node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @spec.requires g != null && starts, dests non-empty ids of nodes of g
+     * @spec.requires startDistances.length == starts.length && destDistances.length == dests.length
+     * @spec.requires every distance >= 0
+     * @return the shortest route in g from some node of starts to some node of dests, whose distance
+     *    includes the weights of the virtual start and destination edges, or null if no node of dests
+     *    can be reached from starts
+     */
+    public static Route dijkstra(CompactGraph g, int[] starts, double[] startDistances, int[] dests, double[] destDistances){
+        return search(g, starts, startDistances, dests, destDistances, 0);
+    }
+
+    /**
+     * Returns the shortest routes from a start node to every node, using Dijkstra's algorithm. The
+     * search runs until every node reachable from start is settled, so that a single search answers
+     * for all destinations.
+     *
+     * @param g the graph in which to find the routes
+     * @param start the id of the node from which to start the routes
+     * @spec.requires g != null
+     * @spec.requires 0 <= start < g.numberOfNodes()
+     * @return the tree of the shortest routes from start to every node of g
+     */
+    public static ShortestPathTree shortestPathTree(CompactGraph g, int start){
+        int n = g.numberOfNodes();
+        double[] distance = new double[n];
+        int[] predecessor = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, NONE);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        seed(queue, distance, new int[]{start}, NO_DISTANCE);
+        int settledNodes = 0;
+        while (!queue.isEmpty()){
+            int u = queue.poll();
+            settled[u] = true;
+            settledNodes++;
+            for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++){
+                int v = g.target(e);
+                double d = distance[u] + g.weight(e);
+                if (!settled[v] && d < distance[v]){
+                    distance[v] = d;
+                    predecessor[v] = e;
+                    queue.offer(v, d);
+                }
+            }
+        }
+        return new ShortestPathTree(g, start, distance, predecessor, settledNodes);
+    }
+
+    /**
+     * Returns the shortest route from a start node to a destination, using A* search. Nodes are
+     * queued by their distance from start plus g.heuristicScale() times their straight-line distance
+     * to dest, which never overestimates the remaining distance, so that the search settles nodes
+     * lying towards dest first.
+     *
+     * @param g the graph in which to find the route
+     * @param start the id of the node from which to start the route
+     * @param dest the id of the node to reach from start
+     * @spec.requires g != null
+     * @spec.requires 0 <= start, dest < g.numberOfNodes()
+     * @return the shortest route from start to dest in g, or null if dest cannot be reached from start
+     */
+    public static Route aStar(CompactGraph g, int start, int dest){
+        return search(g, new int[]{start}, NO_DISTANCE, new int[]{dest}, NO_DISTANCE, g.heuristicScale());
+    }
+
+    /**
+     * Returns the shortest route from a virtual start node to a virtual destination, as described
+     * for dijkstra, using A* search.
+     *
+     * @param g the graph in which to find the route
+     * @param starts the ids of the nodes the virtual start node has edges to
+     * @param startDistances the weights of the edges from the virtual start node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @spec.requires g != null && starts, dests non-empty ids of nodes of g
+     * @spec.requires startDistances.length == starts.length && destDistances.length == dests.length
+     * @spec.requires every distance >= 0
+     * @return the shortest route in g from some node of starts to some node of dests, whose distance
+     *    includes the weights of the virtual start and destination edges, or null if no node of dests
+     *    can be reached from starts
+     */
+    public static Route aStar(CompactGraph g, int[] starts, double[] startDistances, int[] dests, double[] destDistances){
+        return search(g, starts, startDistances, dests, destDistances, g.heuristicScale());
+    }
+
+    /**
+     * Searches for the shortest route from a virtual start node to a virtual destination, queueing
+     * every reached node by its distance from the start plus its estimated distance to the
+     * destination: scale times its straight-line distance to a node of dests, plus the weight of
+     * that node's edge to the destination, whichever is least. With a scale of 0, this is Dijkstra's
+     * algorithm.
+     *
+     * @param g the graph in which to find the route
+     * @param starts the ids of the nodes the virtual start node has edges to
+     * @param startDistances the weights of the edges from the virtual start node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @param scale the factor applied to straight-line distances
+     * @spec.requires 0 <= scale <= g.heuristicScale()
+     * @return the shortest route from some node of starts to some node of dests in g, or null if
+     *    there is none
+     */
+    private static Route search(CompactGraph g, int[] starts, double[] startDistances, int[] dests, double[] destDistances,
+                                double scale){
+        int n = g.numberOfNodes();
+        double[] distance = new double[n];
+        int[] predecessor = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, NONE);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        int settledNodes = 0;
+        for (int i = 0; i < starts.length; i++){
+            int s = starts[i];
+            if (startDistances[i] < distance[s]){
+                distance[s] = startDistances[i];
+                queue.offer(s, scale == 0 ? distance[s] : distance[s] + estimate(g, s, dests, destDistances, scale));
+            }
+        }
+        double best = Double.POSITIVE_INFINITY;
+        int last = NONE;
+        // Queue keys never overestimate the distance of a route through the queued node, so once
+        // the least of them is no less than the best route found, that route is a shortest one
+        while (!queue.isEmpty() && queue.peekKey() < best){
+            int u = queue.poll();
+            settled[u] = true;
+            settledNodes++;
+            for (int i = 0; i < dests.length; i++){
+                if (dests[i] == u && distance[u] + destDistances[i] < best){
+                    best = distance[u] + destDistances[i];
+                    last = u;
+                }
+            }
+            for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++){
+                int v = g.target(e);
+                double d = distance[u] + g.weight(e);
+                if (!settled[v] && d < distance[v]){
+                    distance[v] = d;
+                    predecessor[v] = e;
+                    queue.offer(v, scale == 0 ? d : d + estimate(g, v, dests, destDistances, scale));
+                }
+            }
+        }
+        if (last == NONE){
+            return null;
+        }
+        return route(g, predecessor, last, best, settledNodes);
+    }
+
+    /**
+     * Returns a lower bound on the distance from a node to a virtual destination.
+     *
+     * @param g the graph searched
+     * @param u the id of the node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @param scale the factor applied to straight-line distances
+     * @return the least, over the nodes of dests, of scale times their straight-line distance to u
+     *    plus the weight of their edge to the virtual destination
+     */
+    private static double estimate(CompactGraph g, int u, int[] dests, double[] destDistances, double scale){
+        double estimate = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < dests.length; i++){
+            estimate = Math.min(estimate, scale * g.straightLineDistance(u, dests[i]) + destDistances[i]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the shortest route from a start node to a destination, using bidirectional Dijkstra:
+     * one search runs forwards from start while another runs backwards from dest, always advancing
+     * the one whose next node is closer to its origin. Every edge relaxed between a node reached by
+     * one search and a node reached by the other gives a candidate route, and the searches stop as
+     * soon as the sum of their next distances is no less than the best candidate, which is then a
+     * shortest route.
+     *
+     * @param g the graph in which to find the route
+     * @param start the id of the node from which to start the route
+     * @param dest the id of the node to reach from start
+     * @spec.requires g != null
+     * @spec.requires 0 <= start, dest < g.numberOfNodes()
+     * @return the shortest route from start to dest in g, or null if dest cannot be reached from start
+     */
+    public static Route bidirectional(CompactGraph g, int start, int dest){
+        return bidirectional(g, new int[]{start}, NO_DISTANCE, new int[]{dest}, NO_DISTANCE);
+    }
+
+    /**
+     * Returns the shortest route from a virtual start node to a virtual destination, as described
+     * for dijkstra, using bidirectional Dijkstra: the forward search starts from every node of
+     * starts and the backward search from every node of dests, at the weight of their virtual edge.
+     *
+     * @param g the graph in which to find the route
+     * @param starts the ids of the nodes the virtual start node has edges to
+     * @param startDistances the weights of the edges from the virtual start node
+     * @param dests the ids of the nodes that have edges to the virtual destination
+     * @param destDistances the weights of the edges to the virtual destination
+     * @spec.requires g != null && starts, dests non-empty ids of nodes of g
+     * @spec.requires startDistances.length == starts.length && destDistances.length == dests.length
+     * @spec.requires every distance >= 0
+     * @return the shortest route in g from some node of starts to some node of dests, whose distance
+     *    includes the weights of the virtual start and destination edges, or null if no node of dests
+     *    can be reached from starts
+     */
+    public static Route bidirectional(CompactGraph g, int[] starts, double[] startDistances, int[] dests, double[] destDistances){
+        int n = g.numberOfNodes();
+        double[] forwardDistance = new double[n];
+        double[] backwardDistance = new double[n];
+        // predecessor[v] is the last edge of the best known path from start to v, and successor[v]
+        // the first edge of the best known path from v to dest
+        int[] predecessor = new int[n];
+        int[] successor = new int[n];
+        boolean[] forwardSettled = new boolean[n];
+        boolean[] backwardSettled = new boolean[n];
+        Arrays.fill(forwardDistance, Double.POSITIVE_INFINITY);
+        Arrays.fill(backwardDistance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, NONE);
+        Arrays.fill(successor, NONE);
+        IndexedMinHeap forward = new IndexedMinHeap(n);
+        IndexedMinHeap backward = new IndexedMinHeap(n);
+        seed(forward, forwardDistance, starts, startDistances);
+        seed(backward, backwardDistance, dests, destDistances);
+        double best = Double.POSITIVE_INFINITY;
+        int meet = NONE;
+        for (int s: starts){
+            if (forwardDistance[s] + backwardDistance[s] < best){
+                best = forwardDistance[s] + backwardDistance[s];
+                meet = s;
+            }
+        }
+        int settledNodes = 0;
+        while (true){
+            double nextForward = forward.isEmpty() ? Double.POSITIVE_INFINITY : forward.peekKey();
+            double nextBackward = backward.isEmpty() ? Double.POSITIVE_INFINITY : backward.peekKey();
+            if (nextForward + nextBackward >= best){
+                break;
+            }
+            settledNodes++;
+            if (nextForward <= nextBackward){
+                int u = forward.poll();
+                forwardSettled[u] = true;
+                for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++){
+                    int v = g.target(e);
+                    double d = forwardDistance[u] + g.weight(e);
+                    if (!forwardSettled[v] && d < forwardDistance[v]){
+                        forwardDistance[v] = d;
+                        predecessor[v] = e;
+                        forward.offer(v, d);
+                    }
+                    if (d + backwardDistance[v] < best){
+                        best = d + backwardDistance[v];
+                        meet = v;
+                    }
+                }
+            }else{
+                int u = backward.poll();
+                backwardSettled[u] = true;
+                for (int i = g.firstInEdge(u), end = g.endInEdge(u); i < end; i++){
+                    int e = g.inEdge(i);
+                    int v = g.source(e);
+                    double d = backwardDistance[u] + g.weight(e);
+                    if (!backwardSettled[v] && d < backwardDistance[v]){
+                        backwardDistance[v] = d;
+                        successor[v] = e;
+                        backward.offer(v, d);
+                    }
+                    if (d + forwardDistance[v] < best){
+                        best = d + forwardDistance[v];
+                        meet = v;
+                    }
+                }
+            }
+        }
+        if (meet == NONE){
+            return null;
+        }
+        return route(g, predecessor, successor, meet, best, settledNodes);
+    }
+
+    /**
+     * Queues the nodes a search starts from.
+     *
+     * @param queue the queue of the search
+     * @param distance the distance of each node from the origin of the search
+     * @param nodes the ids of the nodes to start from
+     * @param distances the distance of each of nodes from the origin of the search
+     * @spec.modifies queue, distance
+     * @spec.effects Sets the distance of each node of nodes to the least of its distances, and queues it
+     */
+    static void seed(IndexedMinHeap queue, double[] distance, int[] nodes, double[] distances){
+        for (int i = 0; i < nodes.length; i++){
+            int u = nodes[i];
+            if (distances[i] < distance[u]){
+                distance[u] = distances[i];
+                queue.offer(u, distances[i]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the route to dest by following predecessor edges back from dest to a start node.
+     *
+     * @param g the graph searched
+     * @param predecessor the last edge on the shortest known path to each node, or NONE for the
+     *    nodes the search started from
+     * @param dest the id of the node the route ends at
+     * @param distance the total weight of the route
+     * @param settledNodes the number of nodes settled by the search
+     * @return the route from a start node to dest
+     */
+    private static Route route(CompactGraph g, int[] predecessor, int dest, double distance, int settledNodes){
+        return route(g, predecessor, null, dest, distance, settledNodes);
+    }
+
+    /**
+     * Rebuilds the route through meet, by following predecessor edges back from meet to a node
+     * without one, then successor edges from meet until a node without one.
+     *
+     * @param g the graph searched
+     * @param predecessor the last edge on the shortest known path from the start to each node, or
+     *    NONE for the nodes the forward search started from
+     * @param successor the first edge on the shortest known path from each node to the destination,
+     *    or NONE; null if the route ends at meet
+     * @param meet the id of a node on the route
+     * @param distance the total weight of the route
+     * @param settledNodes the number of nodes settled by the search
+     * @return the route through meet
+     */
+    private static Route route(CompactGraph g, int[] predecessor, int[] successor, int meet,
+                               double distance, int settledNodes){
+        int before = 0;
+        for (int v = meet; predecessor[v] != NONE; v = g.source(predecessor[v])){
+            before++;
+        }
+        int after = 0;
+        if (successor != null){
+            for (int v = meet; successor[v] != NONE; v = g.target(successor[v])){
+                after++;
+            }
+        }
+        int[] nodes = new int[before + after + 1];
+        int[] edges = new int[before + after];
+        int v = meet;
+        nodes[before] = meet;
+        for (int i = before; i > 0; i--){
+            edges[i - 1] = predecessor[v];
+            v = g.source(predecessor[v]);
+            nodes[i - 1] = v;
+        }
+        v = meet;
+        for (int i = before; i < before + after; i++){
+            edges[i] = successor[v];
+            v = g.target(successor[v]);
+            nodes[i + 1] = v;
+        }
+        return new Route(nodes, edges, distance, settledNodes);
+    }
+
+}
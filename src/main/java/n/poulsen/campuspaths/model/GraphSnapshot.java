@@ -0,0 +1,237 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.DataParser.*;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Contains helper methods to save a loaded CampusMap to a binary snapshot file, and to load it back
+ * without parsing the data sets or rebuilding the graph.
+ *
+ * A snapshot starts with a 40-byte header holding, in little-endian order: the magic number
+ * 0x43505348, the format version, flags, an unused int, the length of the payload that follows the
+ * header, the CRC32 checksum of that payload, and the fingerprint of the data sets the map was
+ * parsed from (see fingerprint), so that a snapshot of older data sets isn't loaded in place of
+ * newer ones. The payload holds the arrays of the routing graph
+ * (node coordinates, and edges in compressed sparse row form), the arrays of its contraction
+ * hierarchy if the HIERARCHY flag is set, and finally the table of buildings. Loading maps the file
+ * and copies those arrays in bulk, so its cost is that of reading the file.
+ */
+public final class GraphSnapshot {
+
+    /** The first four bytes of every snapshot */
+    static final int MAGIC = 0x43505348;
+
+    /** The version of the format written by this class, the only one it reads */
+    static final int FORMAT_VERSION = 2;
+
+    /** The flag set when the snapshot holds a contraction hierarchy */
+    static final int HIERARCHY = 1;
+
+    /** The number of bytes of the header */
+    static final int HEADER_SIZE = 40;
+
+    /** The fingerprint of a snapshot that isn't tied to any data sets */
+    public static final long NO_FINGERPRINT = 0;
+
+    /** Not instantiable */
+    private GraphSnapshot(){}
+
+    /**
+     * Computes the fingerprint of data set files: a checksum of the name, size and last modification
+     * time of each, which changes whenever one of them is replaced or edited.
+     *
+     * @param filenames the data set files
+     * @spec.requires filenames != null
+     * @return the fingerprint of the files, which is never NO_FINGERPRINT
+     * @throws IOException if the size or modification time of a file can't be read
+     */
+    public static long fingerprint(String... filenames) throws IOException {
+        ByteBuffer attributes = ByteBuffer.allocate(16);
+        CRC32 crc = new CRC32();
+        for (String filename: filenames) {
+            java.nio.file.Path file = java.nio.file.Paths.get(filename);
+            crc.update(filename.getBytes(StandardCharsets.UTF_8));
+            attributes.clear();
+            attributes.putLong(Files.size(file));
+            attributes.putLong(Files.getLastModifiedTime(file).toMillis());
+            attributes.flip();
+            crc.update(attributes);
+        }
+        // Keeps the checksum in the low half, so that the value can't be NO_FINGERPRINT
+        return crc.getValue() | (1L << 32);
+    }
+
+    /**
+     * Writes a snapshot of a campus map that isn't tied to any data sets. The file is replaced only
+     * once the snapshot is complete.
+     *
+     * @param map the map to save
+     * @param filename the file to write the snapshot to
+     * @spec.requires map != null && filename != null
+     * @spec.effects Replaces the contents of filename with a snapshot of map, including its
+     *    contraction hierarchy if it was already built
+     * @throws IOException if the file can't be written
+     */
+    public static void write(CampusMap map, String filename) throws IOException {
+        write(map, filename, NO_FINGERPRINT);
+    }
+
+    /**
+     * Writes a snapshot of a campus map parsed from data sets. The file is replaced only once the
+     * snapshot is complete.
+     *
+     * @param map the map to save
+     * @param filename the file to write the snapshot to
+     * @param sourceFingerprint the fingerprint of the data sets map was parsed from
+     * @spec.requires map != null && filename != null
+     * @spec.effects Replaces the contents of filename with a snapshot of map, including its
+     *    contraction hierarchy if it was already built
+     * @throws IOException if the file can't be written
+     */
+    public static void write(CampusMap map, String filename, long sourceFingerprint) throws IOException {
+        MapVersion version = map.current();
+        CompactGraph graph = version.graph();
+        ContractionHierarchy hierarchy = version.builtHierarchy();
+        SnapshotBuffer out = new SnapshotBuffer(ByteBuffer.allocate(1 << 16));
+        out.buffer().position(HEADER_SIZE);
+        graph.write(out);
+        if (hierarchy != null){
+            hierarchy.write(out);
+        }
+        Collection<Building> buildings = version.buildings().values();
+        out.putInt(buildings.size());
+        for (Building b: buildings){
+            out.putString(b.getShortName());
+            out.putString(b.getLongName());
+            out.putDouble(b.getLocation().getX());
+            out.putDouble(b.getLocation().getY());
+        }
+        ByteBuffer buffer = out.buffer();
+        buffer.flip();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, hierarchy != null ? HIERARCHY : 0);
+        buffer.putInt(12, 0);
+        buffer.putLong(16, buffer.limit() - HEADER_SIZE);
+        buffer.putLong(24, checksum(payload));
+        buffer.putLong(32, sourceFingerprint);
+
+        java.nio.file.Path target = java.nio.file.Paths.get(filename).toAbsolutePath();
+        java.nio.file.Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads a campus map from a snapshot, whatever data sets it was parsed from.
+     *
+     * @param filename the snapshot file to read
+     * @spec.requires filename != null
+     * @return a campus map with the buildings, paths and (if saved) contraction hierarchy of the
+     *    map the snapshot was written from
+     * @throws MalformedDataException if the file is not a snapshot of a supported version, or is corrupt
+     * @throws IOException if the file can't be read
+     */
+    public static CampusMap read(String filename) throws MalformedDataException, IOException {
+        return read(filename, NO_FINGERPRINT);
+    }
+
+    /**
+     * Loads a campus map from a snapshot of the given data sets.
+     *
+     * @param filename the snapshot file to read
+     * @param sourceFingerprint the fingerprint of the data sets the snapshot must have been written
+     *    from, or NO_FINGERPRINT to accept any snapshot
+     * @spec.requires filename != null
+     * @return a campus map with the buildings, paths and (if saved) contraction hierarchy of the
+     *    map the snapshot was written from
+     * @throws MalformedDataException if the file is not a snapshot of a supported version, is
+     *    corrupt, or was written from other data sets
+     * @throws IOException if the file can't be read
+     */
+    public static CampusMap read(String filename, long sourceFingerprint) throws MalformedDataException, IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(java.nio.file.Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new MalformedDataException("Not a snapshot: " + filename);
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.getInt(0) != MAGIC) {
+            throw new MalformedDataException("Not a snapshot: " + filename);
+        }
+        if (file.getInt(4) != FORMAT_VERSION) {
+            throw new MalformedDataException("Unsupported snapshot version " + file.getInt(4) + ": " + filename);
+        }
+        int flags = file.getInt(8);
+        if (file.getLong(16) != file.limit() - HEADER_SIZE) {
+            throw new MalformedDataException("Truncated snapshot: " + filename);
+        }
+        ByteBuffer payload = file.duplicate();
+        payload.position(HEADER_SIZE);
+        if (file.getLong(24) != checksum(payload)) {
+            throw new MalformedDataException("Corrupt snapshot, checksum mismatch: " + filename);
+        }
+        if (sourceFingerprint != NO_FINGERPRINT && file.getLong(32) != sourceFingerprint) {
+            throw new MalformedDataException("Stale snapshot, written from other data sets: " + filename);
+        }
+        file.position(HEADER_SIZE);
+        try {
+            SnapshotBuffer in = new SnapshotBuffer(file);
+            CompactGraph graph = new CompactGraph(in);
+            ContractionHierarchy hierarchy = (flags & HIERARCHY) != 0 ? new ContractionHierarchy(graph, in) : null;
+            int count = in.getCount(24);
+            List<Building> buildings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String shortName = in.getString();
+                String longName = in.getString();
+                double x = in.getDouble();
+                double y = in.getDouble();
+                buildings.add(new Building(shortName, longName, new Coordinates(x, y)));
+            }
+            return new CampusMap(graph, hierarchy, buildings);
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            throw new MalformedDataException("Corrupt snapshot: " + filename, e);
+        }
+    }
+
+    /**
+     * Computes the checksum of the remaining bytes of a buffer.
+     *
+     * @param buffer the bytes to check
+     * @spec.modifies buffer's position
+     * @return the CRC32 checksum of the bytes between the position and the limit of buffer
+     */
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+}
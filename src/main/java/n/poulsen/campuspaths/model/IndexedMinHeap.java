@@ -0,0 +1,214 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * <b>IndexedMinHeap</b> is a mutable priority queue of integer ids in [0, capacity), each
+ * queued with a double priority. An id is queued at most once, and its priority can be
+ * lowered in place, so the heap never holds more than capacity entries. The heap is 4-ary:
+ * it is shallower than a binary heap, and the four children of a slot are contiguous in memory.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield entries: the set of (id, priority) pairs in this heap
+ *
+ * <b>Abstract invariant</b>:
+ *   No two entries have the same id.
+ */
+final class IndexedMinHeap {
+
+    /** Number of children of every slot of the heap */
+    private static final int ARITY = 4;
+
+    /** The ids in this heap, in heap order */
+    private final int[] heap;
+
+    /** The priority of the id in the same slot of heap */
+    private final double[] keys;
+
+    /** The slot of heap holding a given id, or -1 if it isn't in this heap */
+    private final int[] position;
+
+    /** The number of entries in this heap */
+    private int size;
+
+    // Abstraction function:
+    //    IndexedMinHeap h represents the set of entries {(heap[i], keys[i]) | 0 <= i < size}
+    //
+    // Representation invariant for every IndexedMinHeap h:
+    //    0 <= size <= heap.length &&
+    //    forall 0 <= i < size: position[heap[i]] == i &&
+    //    forall 0 < i < size: keys[(i - 1) / ARITY] <= keys[i] &&
+    //    forall id not in heap[0..size): position[id] == -1
+
+    /**
+     * @param capacity the number of distinct ids this heap can hold
+     * @spec.requires capacity >= 0
+     * @spec.effects Constructs a new empty heap for ids in [0, capacity)
+     */
+    IndexedMinHeap(int capacity){
+        heap = new int[capacity];
+        keys = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Returns true iff this heap holds no entries.
+     *
+     * @return true iff this heap is empty
+     */
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of entries in this heap.
+     *
+     * @return the number of entries in this heap
+     */
+    int size(){
+        return size;
+    }
+
+    /**
+     * Returns true iff the given id is queued in this heap.
+     *
+     * @param id the id to look for
+     * @spec.requires 0 <= id < capacity
+     * @return true iff id is in this heap
+     */
+    boolean contains(int id){
+        return position[id] >= 0;
+    }
+
+    /**
+     * Queues id with the given priority if it isn't in this heap, or lowers its priority if
+     * the given one is smaller than its current one.
+     *
+     * @param id the id to queue
+     * @param key the priority to queue id with
+     * @spec.requires 0 <= id < capacity
+     * @spec.modifies this
+     * @spec.effects adds (id, key) to this heap, or replaces (id, k) with (id, key) if key is less than k
+     * @return true iff this heap was modified
+     */
+    boolean offer(int id, double key){
+        int i = position[id];
+        if (i < 0){
+            i = size++;
+        }else if (key >= keys[i]){
+            return false;
+        }
+        siftUp(i, id, key);
+        return true;
+    }
+
+    /**
+     * Returns the id with the lowest priority in this heap.
+     *
+     * @spec.requires this heap is not empty
+     * @return the id with the lowest priority in this heap
+     */
+    int peek(){
+        if (size == 0) throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    /**
+     * Returns the lowest priority in this heap.
+     *
+     * @spec.requires this heap is not empty
+     * @return the lowest priority in this heap
+     */
+    double peekKey(){
+        if (size == 0) throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Removes and returns the id with the lowest priority in this heap.
+     *
+     * @spec.requires this heap is not empty
+     * @spec.modifies this
+     * @spec.effects removes the entry with the lowest priority from this heap
+     * @return the id with the lowest priority in this heap
+     */
+    int poll(){
+        if (size == 0) throw new NoSuchElementException();
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0){
+            siftDown(0, heap[size], keys[size]);
+        }
+        return min;
+    }
+
+    /**
+     * Removes every entry from this heap.
+     *
+     * @spec.modifies this
+     * @spec.effects makes this heap empty
+     */
+    void clear(){
+        for (int i = 0; i < size; i++){
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves (id, key) from slot i towards the root until its parent's priority is not greater.
+     *
+     * @param i the slot from which to start
+     * @param id the id to place
+     * @param key the priority of id
+     */
+    private void siftUp(int i, int id, double key){
+        while (i > 0){
+            int parent = (i - 1) / ARITY;
+            if (keys[parent] <= key) break;
+            place(i, heap[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, id, key);
+    }
+
+    /**
+     * Moves (id, key) from slot i towards the leaves until no child has a smaller priority.
+     *
+     * @param i the slot from which to start
+     * @param id the id to place
+     * @param key the priority of id
+     */
+    private void siftDown(int i, int id, double key){
+        while (true){
+            int first = i * ARITY + 1;
+            if (first >= size) break;
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int c = first + 1; c < last; c++){
+                if (keys[c] < keys[best]) best = c;
+            }
+            if (keys[best] >= key) break;
+            place(i, heap[best], keys[best]);
+            i = best;
+        }
+        place(i, id, key);
+    }
+
+    /**
+     * Stores (id, key) in slot i.
+     *
+     * @param i the slot to write
+     * @param id the id to store
+     * @param key the priority of id
+     */
+    private void place(int i, int id, double key){
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+}
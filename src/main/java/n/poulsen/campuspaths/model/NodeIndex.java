@@ -0,0 +1,374 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.Arrays;
+
+/**
+ * <b>NodeIndex</b> is an immutable k-d tree over the nodes of a CompactGraph, which finds the
+ * nodes nearest to, or within some distance of, any point without looking at every node.
+ *
+ * The tree is stored implicitly in one array of node ids: the subtree over positions lo to hi - 1
+ * has its splitting node at the middle position mid = (lo + hi) / 2, nodes before mid are on the
+ * low side of the split and nodes after it on the high side. Splits alternate between the x and
+ * the y coordinate with the depth of the subtree, starting with x.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield graph: the graph whose nodes are indexed
+ */
+public final class NodeIndex {
+
+    /** The graph whose nodes are indexed */
+    private final CompactGraph graph;
+
+    /** The ids of the nodes of graph, in k-d tree order */
+    private final int[] tree;
+
+    // Abstraction function:
+    //    NodeIndex i represents an index of the nodes of graph, whose k-d tree is laid out in tree.
+    //
+    // Representation invariant for every NodeIndex i:
+    //    tree is a permutation of [0, graph.numberOfNodes()) &&
+    //    forall subtrees [lo, hi) at depth d, with mid = (lo + hi) / 2 and axis a = d % 2:
+    //        forall lo <= j < mid: coordinate a of tree[j] <= coordinate a of tree[mid] &&
+    //        forall mid < j < hi: coordinate a of tree[j] >= coordinate a of tree[mid]
+
+    /**
+     * @param graph the graph whose nodes to index
+     * @spec.requires graph != null
+     * @spec.effects Constructs a new index of the nodes of graph
+     */
+    public NodeIndex(CompactGraph graph){
+        this.graph = graph;
+        int n = graph.numberOfNodes();
+        tree = new int[n];
+        for (int i = 0; i < n; i++){
+            tree[i] = i;
+        }
+        build(0, n, 0);
+        checkRep();
+    }
+
+    /**
+     * Returns the graph whose nodes are indexed.
+     *
+     * @return the graph this index was built for
+     */
+    public CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Returns the node nearest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the id of the node of graph with the smallest straight-line distance to (x, y), or -1
+     *    if graph has no nodes
+     */
+    public int nearest(double x, double y){
+        int[] nearest = nearest(x, y, 1);
+        return nearest.length == 0 ? -1 : nearest[0];
+    }
+
+    /**
+     * Returns the k nodes nearest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the number of nodes wanted
+     * @spec.requires k >= 0
+     * @return the ids of the min(k, graph.numberOfNodes()) nodes of graph with the smallest
+     *    straight-line distance to (x, y), nearest first
+     */
+    public int[] nearest(double x, double y, int k){
+        Neighbours found = new Neighbours(Math.min(k, tree.length));
+        if (found.capacity > 0){
+            nearest(0, tree.length, 0, x, y, found);
+        }
+        return found.sorted();
+    }
+
+    /**
+     * Returns the nodes within a distance of a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param radius the largest distance from (x, y) of the nodes returned
+     * @return the ids of the nodes of graph at a straight-line distance of at most radius from
+     *    (x, y), in no particular order
+     */
+    public int[] within(double x, double y, double radius){
+        IntList found = new IntList();
+        within(0, tree.length, 0, x, y, radius * radius, found);
+        return found.toArray();
+    }
+
+    /**
+     * Arranges part of tree into a k-d subtree.
+     *
+     * @param lo the first position of the subtree
+     * @param hi one more than the last position of the subtree
+     * @param depth the depth of the subtree
+     */
+    private void build(int lo, int hi, int depth){
+        while (hi - lo > 1){
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth % 2);
+            build(mid + 1, hi, depth + 1);
+            hi = mid;
+            depth++;
+        }
+    }
+
+    /**
+     * Partially sorts part of tree by one coordinate, so that the node at a given position is the
+     * one that would be there if that part were sorted, with no greater node before it and no
+     * smaller node after it.
+     *
+     * @param lo the first position of the part
+     * @param hi one more than the last position of the part
+     * @param k the position to select
+     * @param axis 0 to sort by x coordinate, 1 by y coordinate
+     */
+    private void select(int lo, int hi, int k, int axis){
+        int left = lo;
+        int right = hi - 1;
+        while (left < right){
+            double pivot = coordinate(tree[(left + right) >>> 1], axis);
+            int i = left;
+            int j = right;
+            while (i <= j){
+                while (coordinate(tree[i], axis) < pivot) i++;
+                while (coordinate(tree[j], axis) > pivot) j--;
+                if (i <= j){
+                    int t = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j){
+                right = j;
+            }else if (k >= i){
+                left = i;
+            }else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the nodes of a subtree nearer to a point than those found so far to them.
+     *
+     * @param lo the first position of the subtree
+     * @param hi one more than the last position of the subtree
+     * @param depth the depth of the subtree
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param found the nearest nodes found so far
+     */
+    private void nearest(int lo, int hi, int depth, double x, double y, Neighbours found){
+        if (lo >= hi){
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int u = tree[mid];
+        double dx = graph.x(u) - x;
+        double dy = graph.y(u) - y;
+        found.offer(u, dx * dx + dy * dy);
+        double split = depth % 2 == 0 ? -dx : -dy;
+        // Search the side of the split the point is on first: the nodes there are likely nearer,
+        // which lets the other side be skipped when the split is further than the k-th nearest node
+        if (split < 0){
+            nearest(lo, mid, depth + 1, x, y, found);
+            if (split * split < found.bound()){
+                nearest(mid + 1, hi, depth + 1, x, y, found);
+            }
+        }else{
+            nearest(mid + 1, hi, depth + 1, x, y, found);
+            if (split * split < found.bound()){
+                nearest(lo, mid, depth + 1, x, y, found);
+            }
+        }
+    }
+
+    /**
+     * Adds the nodes of a subtree within a distance of a point to a list.
+     *
+     * @param lo the first position of the subtree
+     * @param hi one more than the last position of the subtree
+     * @param depth the depth of the subtree
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param squaredRadius the square of the largest distance of the nodes to add
+     * @param found the list of nodes found so far
+     */
+    private void within(int lo, int hi, int depth, double x, double y, double squaredRadius, IntList found){
+        if (lo >= hi){
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int u = tree[mid];
+        double dx = graph.x(u) - x;
+        double dy = graph.y(u) - y;
+        if (dx * dx + dy * dy <= squaredRadius){
+            found.add(u);
+        }
+        double split = depth % 2 == 0 ? -dx : -dy;
+        if (split < 0 || split * split <= squaredRadius){
+            within(lo, mid, depth + 1, x, y, squaredRadius, found);
+        }
+        if (split >= 0 || split * split <= squaredRadius){
+            within(mid + 1, hi, depth + 1, x, y, squaredRadius, found);
+        }
+    }
+
+    /**
+     * Returns one coordinate of a node.
+     *
+     * @param u the id of the node
+     * @param axis 0 for the x coordinate, 1 for the y coordinate
+     * @return the coordinate of u along axis
+     */
+    private double coordinate(int u, int axis){
+        return axis == 0 ? graph.x(u) : graph.y(u);
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(tree.length == graph.numberOfNodes());
+    }
+
+    /**
+     * The nearest nodes found so far by a search, at most capacity of them, kept in a binary max-heap
+     * on their squared distance so that the furthest one can be replaced.
+     */
+    private static final class Neighbours {
+
+        /** The maximum number of nodes kept */
+        private final int capacity;
+
+        /** The ids of the nodes kept, in heap order */
+        private final int[] ids;
+
+        /** The squared distance of the nodes kept, in heap order */
+        private final double[] distances;
+
+        /** The number of nodes kept */
+        private int size;
+
+        /**
+         * @param capacity the maximum number of nodes kept
+         * @spec.effects Constructs a new empty set of neighbours
+         */
+        private Neighbours(int capacity){
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        /**
+         * Returns the squared distance a node must be under to be kept.
+         *
+         * @return the squared distance of the furthest node kept, or infinity if fewer than capacity are
+         */
+        private double bound(){
+            return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        /**
+         * Keeps a node if it is among the capacity nearest ones offered so far.
+         *
+         * @param id the id of the node
+         * @param distance the squared distance of the node
+         */
+        private void offer(int id, double distance){
+            if (size < capacity){
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance){
+                    ids[i] = ids[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }else if (distance < distances[0]){
+                siftDown(0, id, distance, size);
+            }
+        }
+
+        /**
+         * Places a node at a position of the heap, moving it down below any further node.
+         *
+         * @param i the position
+         * @param id the id of the node
+         * @param distance the squared distance of the node
+         * @param end the number of positions of the heap
+         */
+        private void siftDown(int i, int id, double distance, int end){
+            while (2 * i + 1 < end){
+                int child = 2 * i + 1;
+                if (child + 1 < end && distances[child + 1] > distances[child]){
+                    child++;
+                }
+                if (distances[child] <= distance){
+                    break;
+                }
+                ids[i] = ids[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        /**
+         * Returns the nodes kept, nearest first. The heap is emptied.
+         *
+         * @return the ids of the nodes kept, by increasing distance
+         */
+        private int[] sorted(){
+            int[] result = new int[size];
+            for (int end = size; end > 0; end--){
+                result[end - 1] = ids[0];
+                siftDown(0, ids[end - 1], distances[end - 1], end - 1);
+            }
+            size = 0;
+            return result;
+        }
+
+    }
+
+    /** A growable list of ints. */
+    private static final class IntList {
+
+        /** The values, in the first size positions */
+        private int[] values = new int[16];
+
+        /** The number of values */
+        private int size;
+
+        /**
+         * Adds a value at the end of this list.
+         *
+         * @param v the value to add
+         */
+        private void add(int v){
+            if (size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+        }
+
+        /**
+         * Returns the values of this list.
+         *
+         * @return a new array of the values of this list
+         */
+        private int[] toArray(){
+            return Arrays.copyOf(values, size);
+        }
+
+    }
+
+}
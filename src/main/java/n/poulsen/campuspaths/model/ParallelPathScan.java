@@ -0,0 +1,167 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DataParser.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <b>ParallelPathScan</b> parses a chunk of the lines of a paths file on a fork-join pool. The
+ * paths parsed by a chunk are held in a flat array of doubles until they are replayed, in the order
+ * of the file, to the consumer of the whole scan. Only a few chunks per thread are parsed ahead of
+ * the one being replayed, so that the memory held by parsed paths stays bounded however large the
+ * file is.
+ */
+final class ParallelPathScan extends RecursiveAction {
+
+    /** The version of the serialized form, which RecursiveAction gives this class; scans are never serialized */
+    private static final long serialVersionUID = 1L;
+
+    /** The smallest number of bytes in a chunk, below which splitting costs more than it saves */
+    private static final int MINIMUM_CHUNK = 1 << 20;
+
+    /** The largest number of bytes in a chunk, which bounds the paths a chunk holds until it is replayed */
+    private static final int MAXIMUM_CHUNK = 16 << 20;
+
+    /** The number of chunks per thread of the pool, so that threads finishing early can take more */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** The number of chunks per thread of the pool parsed or waiting to be replayed at once */
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    /** The number of doubles stored per path */
+    private static final int FIELDS = 5;
+
+    /** The buffer holding the chunk */
+    private final transient ByteBuffer buffer;
+
+    /** The position of the first byte of the chunk */
+    private final int from;
+
+    /** The position one past the last byte of the chunk */
+    private final int to;
+
+    /**
+     * The origin x, origin y, destination x, destination y and distance of every parsed path, or
+     * null once they were replayed
+     */
+    private double[] paths;
+
+    /** The number of doubles used in paths */
+    private int size;
+
+    /** The error found in the chunk, if any */
+    private MalformedDataException error;
+
+    // Representation invariant for every ParallelPathScan s:
+    //    buffer != null && 0 <= from <= to <= buffer.limit() &&
+    //    (paths == null || 0 <= size <= paths.length) && size % FIELDS == 0
+
+    /**
+     * @param buffer the buffer holding the chunk
+     * @param from the position of the first line of the chunk
+     * @param to the position one past the end of the last line of the chunk
+     * @spec.effects Constructs a new scan of the lines of buffer between from and to
+     */
+    private ParallelPathScan(ByteBuffer buffer, int from, int to){
+        // Every scan gets its own view of the buffer, so that none shares state with another thread
+        this.buffer = buffer.duplicate();
+        this.from = from;
+        this.to = to;
+        // Lines of the data sets are about 50 bytes long
+        this.paths = new double[Math.max(FIELDS, (to - from) / 50 * FIELDS)];
+    }
+
+    /**
+     * Parses the lines between two positions of a buffer on a pool, and passes the paths they hold
+     * to a consumer in order.
+     *
+     * @param buffer the buffer holding the lines
+     * @param from the position of the first line
+     * @param to the position one past the end of the last line
+     * @param pool the pool on which lines are parsed
+     * @param consumer the consumer of the paths
+     * @spec.requires buffer != null && 0 <= from <= to <= buffer.limit() && pool != null && consumer != null
+     * @spec.effects calls consumer.accept once for every path, on the calling thread, in order
+     * @throws MalformedDataException if a line is not well-formed, after passing the paths before it
+     */
+    static void scan(ByteBuffer buffer, int from, int to, ForkJoinPool pool, PathConsumer consumer) throws MalformedDataException {
+        int chunkSize = Math.max(MINIMUM_CHUNK, (to - from) / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        chunkSize = Math.min(chunkSize, MAXIMUM_CHUNK);
+        int maxInFlight = pool.getParallelism() * IN_FLIGHT_PER_THREAD;
+        Deque<ParallelPathScan> inFlight = new ArrayDeque<>();
+        int start = from;
+        try{
+            while (start < to || !inFlight.isEmpty()){
+                // Keeps the pool busy, submitting a new chunk as each one is replayed
+                while (start < to && inFlight.size() < maxInFlight){
+                    int end = to - start <= chunkSize ? to : PathDataScanner.nextLine(buffer, start + chunkSize, to);
+                    ParallelPathScan chunk = new ParallelPathScan(buffer, start, end);
+                    pool.execute(chunk);
+                    inFlight.add(chunk);
+                    start = end;
+                }
+                ParallelPathScan chunk = inFlight.remove();
+                chunk.join();
+                chunk.replay(consumer);
+                if (chunk.error != null){
+                    throw chunk.error;
+                }
+            }
+        }finally{
+            // Chunks after an error or a failing consumer aren't needed any more
+            for (ParallelPathScan chunk: inFlight){
+                chunk.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    protected void compute(){
+        try{
+            new PathDataScanner(buffer, from, to).scan(this::add);
+        }catch (MalformedDataException e){
+            error = e;
+        }
+    }
+
+    /**
+     * Stores a parsed path.
+     *
+     * @param originX the x coordinate of the path's origin
+     * @param originY the y coordinate of the path's origin
+     * @param destinationX the x coordinate of the path's destination
+     * @param destinationY the y coordinate of the path's destination
+     * @param distance the path's distance
+     */
+    private void add(double originX, double originY, double destinationX, double destinationY, double distance){
+        if (size + FIELDS > paths.length){
+            paths = Arrays.copyOf(paths, paths.length * 2);
+        }
+        paths[size] = originX;
+        paths[size + 1] = originY;
+        paths[size + 2] = destinationX;
+        paths[size + 3] = destinationY;
+        paths[size + 4] = distance;
+        size += FIELDS;
+    }
+
+    /**
+     * Passes the parsed paths to a consumer, in the order they were parsed, then drops them.
+     *
+     * @param consumer the consumer of the paths
+     * @spec.requires the paths weren't replayed yet
+     * @spec.modifies this
+     */
+    private void replay(PathConsumer consumer){
+        double[] parsed = paths;
+        paths = null;
+        for (int i = 0; i < size; i += FIELDS){
+            consumer.accept(parsed[i], parsed[i + 1], parsed[i + 2], parsed[i + 3], parsed[i + 4]);
+        }
+    }
+
+}
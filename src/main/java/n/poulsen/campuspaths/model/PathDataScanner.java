@@ -0,0 +1,222 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DataParser.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <b>PathDataScanner</b> parses the lines of a paths TSV file straight from the bytes of a buffer,
+ * without building a String for each line or token. Each line holds the origin coordinates, the
+ * destination coordinates, and the distance of a path, in the format described by
+ * DataParser.parsePathData, and is passed to a PathConsumer as five doubles. Lines starting with #
+ * are skipped.
+ *
+ * Plain decimal numbers with at most 15 or 16 significant digits, which is what the data sets hold,
+ * are parsed from their digits exactly as Double.parseDouble would. Any other number is handed to
+ * Double.parseDouble, so that both parsers accept and return the same values.
+ */
+final class PathDataScanner {
+
+    /** The powers of ten that are exactly representable as doubles */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The largest integer below which every integer is exactly representable as a double */
+    private static final long EXACT_INTEGERS = 1L << 53;
+
+    /** The buffer holding the lines */
+    private final ByteBuffer buffer;
+
+    /** The position one past the last byte to scan */
+    private final int limit;
+
+    /** The start of the next line to scan */
+    private int position;
+
+    // Representation invariant for every PathDataScanner s:
+    //    buffer != null && 0 <= position <= limit <= buffer.limit()
+
+    /**
+     * @param buffer the buffer holding the lines
+     * @param from the position of the first byte of the first line to scan
+     * @param to the position one past the last byte to scan
+     * @spec.requires buffer != null && 0 <= from <= to <= buffer.limit()
+     * @spec.effects Constructs a new scanner of the lines of buffer between from and to
+     */
+    PathDataScanner(ByteBuffer buffer, int from, int to){
+        this.buffer = buffer;
+        this.position = from;
+        this.limit = to;
+    }
+
+    /**
+     * Returns the position of the start of the line after the one containing a given position.
+     *
+     * @param buffer the buffer holding the lines
+     * @param from a position in buffer
+     * @param to the position one past the last byte that may be searched
+     * @spec.requires buffer != null && 0 <= from <= to <= buffer.limit()
+     * @return the position after the first line break at or after from, or to if there is none before it
+     */
+    static int nextLine(ByteBuffer buffer, int from, int to){
+        for (int i = from; i < to; i++){
+            if (buffer.get(i) == '\n'){
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Parses every remaining line, passing the path it holds to a consumer.
+     *
+     * @param consumer the consumer of the paths
+     * @spec.requires consumer != null
+     * @spec.modifies this
+     * @spec.effects Calls consumer.accept for each remaining path, in order, and moves past all lines
+     * @throws MalformedDataException if a line is not well-formed, after passing the paths before it
+     */
+    void scan(PathConsumer consumer) throws MalformedDataException {
+        while (position < limit){
+            int end = nextLine(buffer, position, limit);
+            int lineEnd = end;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\n') lineEnd--;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+            if (lineEnd == position || buffer.get(position) != '#'){
+                scanLine(position, lineEnd, consumer);
+            }
+            position = end;
+        }
+    }
+
+    /**
+     * Parses one line.
+     *
+     * @param from the position of the first byte of the line
+     * @param to the position one past the last byte of the line, excluding the line break
+     * @param consumer the consumer of the path on the line
+     * @throws MalformedDataException if the line is not well-formed
+     */
+    private void scanLine(int from, int to, PathConsumer consumer) throws MalformedDataException {
+        int firstTab = find('\t', from, to);
+        int secondTab = firstTab < 0 ? -1 : find('\t', firstTab + 1, to);
+        if (secondTab < 0 || find('\t', secondTab + 1, to) >= 0){
+            throw new MalformedDataException("Line should contain exactly two tabs: " + text(from, to));
+        }
+        int originComma = find(',', from, firstTab);
+        int destinationComma = find(',', firstTab + 1, secondTab);
+        double originX, originY, destinationX, destinationY;
+        try{
+            if (originComma < 0 || find(',', originComma + 1, firstTab) >= 0
+                    || destinationComma < 0 || find(',', destinationComma + 1, secondTab) >= 0){
+                throw new IllegalArgumentException("Coordinates not in correct format");
+            }
+            originX = parseDouble(from, originComma);
+            originY = parseDouble(originComma + 1, firstTab);
+            destinationX = parseDouble(firstTab + 1, destinationComma);
+            destinationY = parseDouble(destinationComma + 1, secondTab);
+        }catch(IllegalArgumentException e){
+            throw new MalformedDataException("Line coordinates not well formatted: " + text(from, to), e);
+        }
+        double distance;
+        try{
+            distance = parseDouble(secondTab + 1, to);
+        }catch(NumberFormatException e){
+            throw new MalformedDataException("Distance not well formatted: " + text(from, to), e);
+        }
+        if (distance <= 0){
+            throw new MalformedDataException("Negative distance in file");
+        }
+        consumer.accept(originX, originY, destinationX, destinationY, distance);
+    }
+
+    /**
+     * Parses the number between two positions.
+     *
+     * @param from the position of the first byte of the number
+     * @param to the position one past the last byte of the number
+     * @return the double value of the number, as returned by Double.parseDouble
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    private double parseDouble(int from, int to){
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')){
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < to; i++){
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9'){
+                if (mantissa >= EXACT_INTEGERS / 10){
+                    return slowParseDouble(from, to);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction) exponent--;
+            }else if (b == '.' && !fraction){
+                fraction = true;
+            }else{
+                return slowParseDouble(from, to);
+            }
+        }
+        if (digits == 0 || exponent < -22){
+            return slowParseDouble(from, to);
+        }
+        // Both the mantissa and the power of ten are exact, so the one rounding of the division
+        // gives the correctly rounded value
+        double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the number between two positions with Double.parseDouble.
+     *
+     * @param from the position of the first byte of the number
+     * @param to the position one past the last byte of the number
+     * @return the double value of the number
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    private double slowParseDouble(int from, int to){
+        return Double.parseDouble(text(from, to));
+    }
+
+    /**
+     * Returns the position of the first occurrence of a byte.
+     *
+     * @param b the byte to find
+     * @param from the position at which to start searching
+     * @param to the position one past the last byte to search
+     * @return the position of the first b between from and to, or -1 if there is none
+     */
+    private int find(char b, int from, int to){
+        for (int i = from; i < to; i++){
+            if (buffer.get(i) == b){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the bytes between two positions as a String, for error messages and uncommon numbers.
+     *
+     * @param from the position of the first byte
+     * @param to the position one past the last byte
+     * @return the bytes between from and to, decoded as ISO-8859-1
+     */
+    private String text(int from, int to){
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+}
@@ -0,0 +1,110 @@
+package n.poulsen.campuspaths.model;
+
+/**
+ * <b>Route</b> is an immutable path found in a CompactGraph: a sequence of node ids, the ids
+ * of the edges between consecutive nodes, and the total weight of those edges. It also records
+ * how many nodes the search that found it settled.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield nodes: the ids of the nodes along this route, from start to end
+ *   @spec.specfield edges: the ids of the edges along this route, from start to end
+ *   @spec.specfield distance: the sum of the weights of the edges of this route
+ *   @spec.specfield settledNodes: the number of nodes settled by the search that found this route
+ */
+public final class Route {
+
+    /** The ids of the nodes along this route */
+    private final int[] nodes;
+
+    /** The ids of the edges along this route; edges[i] leads from nodes[i] to nodes[i + 1] */
+    private final int[] edges;
+
+    /** The total weight of this route */
+    private final double distance;
+
+    /** The number of nodes settled by the search that found this route */
+    private final int settledNodes;
+
+    // Abstraction function:
+    //    Route r represents the path going through nodes[0], ..., nodes[nodes.length - 1] using
+    //    edges edges[0], ..., edges[edges.length - 1], of total weight distance.
+    //
+    // Representation invariant for every Route r:
+    //    nodes.length >= 1 &&
+    //    edges.length == nodes.length - 1 &&
+    //    distance >= 0 &&
+    //    settledNodes >= 0
+
+    /**
+     * @param nodes the ids of the nodes along the route
+     * @param edges the ids of the edges along the route
+     * @param distance the total weight of the route
+     * @param settledNodes the number of nodes settled by the search that found the route
+     * @spec.requires nodes.length == edges.length + 1
+     * @spec.effects Constructs a new Route. The arrays are not copied, and must not be modified afterwards.
+     */
+    Route(int[] nodes, int[] edges, double distance, int settledNodes){
+        this.nodes = nodes;
+        this.edges = edges;
+        this.distance = distance;
+        this.settledNodes = settledNodes;
+        checkRep();
+    }
+
+    /**
+     * Returns the number of edges in this route.
+     *
+     * @return the number of edges in this route
+     */
+    public int length(){
+        return edges.length;
+    }
+
+    /**
+     * Returns the id of the i-th node of this route.
+     *
+     * @param i the position of the node, the start being at position 0
+     * @spec.requires 0 <= i <= length()
+     * @return the id of the i-th node of this route
+     */
+    public int node(int i){
+        return nodes[i];
+    }
+
+    /**
+     * Returns the id of the i-th edge of this route.
+     *
+     * @param i the position of the edge, the first edge being at position 0
+     * @spec.requires 0 <= i < length()
+     * @return the id of the i-th edge of this route
+     */
+    public int edge(int i){
+        return edges[i];
+    }
+
+    /**
+     * Returns the total weight of this route.
+     *
+     * @return the total weight of this route
+     */
+    public double getDistance(){
+        return distance;
+    }
+
+    /**
+     * Returns the number of nodes settled by the search that found this route.
+     *
+     * @return the number of nodes settled by the search that found this route
+     */
+    public int getSettledNodes(){
+        return settledNodes;
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(nodes.length == edges.length + 1);
+        assert(distance >= 0);
+        assert(settledNodes >= 0);
+    }
+
+}
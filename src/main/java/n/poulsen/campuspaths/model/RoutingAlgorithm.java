@@ -0,0 +1,21 @@
+package n.poulsen.campuspaths.model;
+
+/**
+ * The shortest path searches a CampusMap can route with. All of them find a shortest
+ * route; they differ in how many nodes they settle to find it.
+ */
+public enum RoutingAlgorithm {
+
+    /** Dijkstra's algorithm, searching outwards from the start */
+    DIJKSTRA,
+
+    /** A* search, guided towards the destination by the straight-line distance to it */
+    ASTAR,
+
+    /** Dijkstra's algorithm, searching outwards from the start and from the destination at once */
+    BIDIRECTIONAL,
+
+    /** Bidirectional search in a contraction hierarchy, which is built when first needed */
+    CONTRACTION_HIERARCHIES
+
+}
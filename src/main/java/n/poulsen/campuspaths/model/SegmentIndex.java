@@ -0,0 +1,297 @@
+package n.poulsen.campuspaths.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * <b>SegmentIndex</b> is an immutable spatial index of the edges of a CompactGraph, seen as straight
+ * segments between the coordinates of their nodes, which finds the point of the graph's segments
+ * nearest to any location without looking at every edge.
+ *
+ * The bounding box of the graph is divided into a grid of square cells, sized so that there are
+ * about as many cells as segments, and each segment is listed in every cell its own bounding box
+ * overlaps. A query looks at the cells in rings of growing size around the location, and stops once
+ * the nearest segment found is closer than any cell left. An edge and its reverse edge make up a
+ * single segment.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield graph: the graph whose edges are indexed
+ */
+public final class SegmentIndex {
+
+    /** The largest number of cells along either side of the grid */
+    private static final int MAX_CELLS_PER_SIDE = 4096;
+
+    /** The graph whose edges are indexed */
+    private final CompactGraph graph;
+
+    /** The smallest x coordinate of the nodes of graph */
+    private final double minX;
+
+    /** The smallest y coordinate of the nodes of graph */
+    private final double minY;
+
+    /** The length of the sides of each cell */
+    private final double cellSize;
+
+    /** The number of columns of the grid */
+    private final int columns;
+
+    /** The number of rows of the grid */
+    private final int rows;
+
+    /** The segments of cell c are at positions cellStart[c] to cellStart[c + 1] - 1 of cellSegments */
+    private final int[] cellStart;
+
+    /** The edge of each segment listed in each cell, by cell */
+    private final int[] cellSegments;
+
+    /** For each edge, the id of its reverse edge, or -1 if it has none */
+    private final int[] reverse;
+
+    // Abstraction function:
+    //    SegmentIndex i represents an index of the segments of graph, the cell at column c and row r
+    //    of which covers x coordinates from minX + c * cellSize to minX + (c + 1) * cellSize, and y
+    //    coordinates from minY + r * cellSize to minY + (r + 1) * cellSize. That cell is number
+    //    r * columns + c, and lists the segments whose bounding box overlaps it.
+    //
+    // Representation invariant for every SegmentIndex i:
+    //    cellSize > 0 && columns > 0 && rows > 0 &&
+    //    cellStart.length == columns * rows + 1 && cellStart[columns * rows] == cellSegments.length &&
+    //    reverse.length == graph.numberOfEdges()
+
+    /**
+     * @param graph the graph whose edges to index
+     * @spec.requires graph != null
+     * @spec.effects Constructs a new index of the edges of graph
+     */
+    public SegmentIndex(CompactGraph graph){
+        this.graph = graph;
+        int edges = graph.numberOfEdges();
+        reverse = new int[edges];
+        int segments = 0;
+        for (int e = 0; e < edges; e++){
+            reverse[e] = findReverse(e);
+            if (isSegment(e)){
+                segments++;
+            }
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int u = 0; u < graph.numberOfNodes(); u++){
+            minX = Math.min(minX, graph.x(u));
+            minY = Math.min(minY, graph.y(u));
+            maxX = Math.max(maxX, graph.x(u));
+            maxY = Math.max(maxY, graph.y(u));
+        }
+        if (graph.numberOfNodes() == 0){
+            minX = minY = maxX = maxY = 0;
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        double size = Math.sqrt(width * height / Math.max(segments, 1));
+        size = Math.max(size, Math.max(width, height) / Math.min(Math.max(segments, 1), MAX_CELLS_PER_SIDE));
+        if (!(size > 0)){
+            size = 1;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = size;
+        this.columns = (int) (width / size) + 1;
+        this.rows = (int) (height / size) + 1;
+
+        // Count the segments of each cell, then list them in place
+        cellStart = new int[columns * rows + 1];
+        for (int e = 0; e < edges; e++){
+            if (isSegment(e)){
+                forEachCell(e, c -> cellStart[c + 1]++);
+            }
+        }
+        for (int c = 0; c < columns * rows; c++){
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellSegments = new int[cellStart[columns * rows]];
+        int[] next = cellStart.clone();
+        for (int e = 0; e < edges; e++){
+            if (isSegment(e)){
+                int edge = e;
+                forEachCell(e, c -> cellSegments[next[c]++] = edge);
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Returns the graph whose edges are indexed.
+     *
+     * @return the graph this index was built for
+     */
+    public CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Returns the point of the graph's segments nearest to a location.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the point on an edge of graph with the smallest straight-line distance to (x, y), or
+     *    null if graph has no edges between distinct nodes
+     */
+    public EdgeSnap nearest(double x, double y){
+        if (cellSegments.length == 0){
+            return null;
+        }
+        int column = clamp((int) Math.floor((x - minX) / cellSize), columns);
+        int row = clamp((int) Math.floor((y - minY) / cellSize), rows);
+        int bestEdge = -1;
+        double best = Double.POSITIVE_INFINITY;
+        int maxRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+        // Every point of a cell outside ring r around the cell nearest to (x, y) is at least
+        // r * cellSize away from (x, y), so the search can stop once the best segment is closer
+        for (int ring = 0; ring <= maxRing; ring++){
+            for (int r = Math.max(row - ring, 0); r <= Math.min(row + ring, rows - 1); r++){
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (int c = Math.max(column - ring, 0); c <= Math.min(column + ring, columns - 1); c++){
+                    if (!edgeRow && c != column - ring && c != column + ring){
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++){
+                        int e = cellSegments[i];
+                        double d = squaredDistance(e, x, y);
+                        if (d < best){
+                            best = d;
+                            bestEdge = e;
+                        }
+                    }
+                }
+            }
+            double reached = ring * cellSize;
+            if (best <= reached * reached){
+                break;
+            }
+        }
+        return snap(bestEdge, x, y);
+    }
+
+    /**
+     * Returns the point of an edge nearest to a location.
+     *
+     * @param e the id of the edge
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the point of the segment of e nearest to (x, y)
+     */
+    private EdgeSnap snap(int e, double x, double y){
+        double t = fraction(e, x, y);
+        int u = graph.source(e);
+        int v = graph.target(e);
+        double px = graph.x(u) + t * (graph.x(v) - graph.x(u));
+        double py = graph.y(u) + t * (graph.y(v) - graph.y(u));
+        return new EdgeSnap(graph, e, reverse[e], t, px, py, Math.hypot(px - x, py - y));
+    }
+
+    /**
+     * Returns the position along an edge of the point of its segment nearest to a location.
+     *
+     * @param e the id of the edge
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the position of the nearest point, from 0 at the source of e to 1 at its target
+     */
+    private double fraction(int e, double x, double y){
+        int u = graph.source(e);
+        int v = graph.target(e);
+        double dx = graph.x(v) - graph.x(u);
+        double dy = graph.y(v) - graph.y(u);
+        double t = ((x - graph.x(u)) * dx + (y - graph.y(u)) * dy) / (dx * dx + dy * dy);
+        return Math.max(0, Math.min(1, t));
+    }
+
+    /**
+     * Returns the squared distance from a location to the segment of an edge.
+     *
+     * @param e the id of the edge
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the squared straight-line distance from (x, y) to the nearest point of e's segment
+     */
+    private double squaredDistance(int e, double x, double y){
+        double t = fraction(e, x, y);
+        int u = graph.source(e);
+        int v = graph.target(e);
+        double dx = graph.x(u) + t * (graph.x(v) - graph.x(u)) - x;
+        double dy = graph.y(u) + t * (graph.y(v) - graph.y(u)) - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns whether an edge stands for its segment in the index: edges between distinct nodes do,
+     * unless they are the reverse of an edge with a smaller source.
+     *
+     * @param e the id of the edge
+     * @return true iff e is listed in the cells of its segment
+     */
+    private boolean isSegment(int e){
+        int u = graph.source(e);
+        int v = graph.target(e);
+        return u != v && (u < v || reverse[e] < 0);
+    }
+
+    /**
+     * Returns the reverse of an edge.
+     *
+     * @param e the id of the edge
+     * @return the id of the lightest edge from the target of e to its source, or -1 if there is none
+     */
+    private int findReverse(int e){
+        int u = graph.source(e);
+        int v = graph.target(e);
+        int found = -1;
+        for (int r = graph.firstEdge(v), end = graph.endEdge(v); r < end; r++){
+            if (graph.target(r) == u && (found < 0 || graph.weight(r) < graph.weight(found))){
+                found = r;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Calls an action for each cell overlapped by the bounding box of an edge's segment.
+     *
+     * @param e the id of the edge
+     * @param action the action to call with the number of each cell
+     */
+    private void forEachCell(int e, IntConsumer action){
+        double x1 = graph.x(graph.source(e)), x2 = graph.x(graph.target(e));
+        double y1 = graph.y(graph.source(e)), y2 = graph.y(graph.target(e));
+        int c1 = clamp((int) ((Math.min(x1, x2) - minX) / cellSize), columns);
+        int c2 = clamp((int) ((Math.max(x1, x2) - minX) / cellSize), columns);
+        int r1 = clamp((int) ((Math.min(y1, y2) - minY) / cellSize), rows);
+        int r2 = clamp((int) ((Math.max(y1, y2) - minY) / cellSize), rows);
+        for (int r = r1; r <= r2; r++){
+            for (int c = c1; c <= c2; c++){
+                action.accept(r * columns + c);
+            }
+        }
+    }
+
+    /**
+     * Clamps a cell coordinate to the grid.
+     *
+     * @param i the column or row
+     * @param size the number of columns or rows
+     * @return the column or row of the grid nearest to i
+     */
+    private static int clamp(int i, int size){
+        return Math.max(0, Math.min(size - 1, i));
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(cellSize > 0 && columns > 0 && rows > 0);
+        assert(cellStart.length == columns * rows + 1 && cellStart[columns * rows] == cellSegments.length);
+        assert(reverse.length == graph.numberOfEdges());
+    }
+
+}
@@ -0,0 +1,162 @@
+package n.poulsen.campuspaths.model;
+
+/**
+ * <b>ShortestPathTree</b> is an immutable tree of shortest routes from one node of a CompactGraph
+ * to every node reachable from it, as found by a single search. For every node it records the
+ * distance from the source and the last edge of a shortest route to it, from which the route
+ * itself follows.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield graph: the graph searched
+ *   @spec.specfield source: the id of the node the routes start from
+ *   @spec.specfield distances: the length of the shortest route from source to each node of graph,
+ *                              or infinity if there is none
+ *   @spec.specfield settledNodes: the number of nodes settled by the search that built this tree
+ */
+public final class ShortestPathTree {
+
+    /** Marks a node without a predecessor edge */
+    static final int NONE = -1;
+
+    /** The graph searched */
+    private final CompactGraph graph;
+
+    /** The id of the node the routes start from */
+    private final int source;
+
+    /** The distance from source of each node, by id */
+    private final double[] distance;
+
+    /** The last edge of the shortest route from source to each node, by id, or NONE */
+    private final int[] predecessor;
+
+    /** The number of nodes settled by the search that built this tree */
+    private final int settledNodes;
+
+    // Abstraction function:
+    //    ShortestPathTree t represents the shortest routes from source in graph: the route to node v
+    //    is the one to graph.source(predecessor[v]) followed by edge predecessor[v], of total weight
+    //    distance[v], the route to source being empty, and there is no route to v if distance[v]
+    //    is infinite.
+    //
+    // Representation invariant for every ShortestPathTree t:
+    //    distance.length == predecessor.length == graph.numberOfNodes() &&
+    //    distance[source] == 0 && predecessor[source] == NONE &&
+    //    forall v != source: (predecessor[v] == NONE) == (distance[v] is infinite) &&
+    //    forall v with predecessor[v] != NONE: graph.target(predecessor[v]) == v
+
+    /**
+     * @param graph the graph searched
+     * @param source the id of the node the routes start from
+     * @param distance the distance from source of each node
+     * @param predecessor the last edge of the shortest route to each node, or NONE
+     * @param settledNodes the number of nodes settled by the search
+     * @spec.requires the arguments satisfy the representation invariant
+     * @spec.effects Constructs a new ShortestPathTree. The arrays are not copied, and must not be
+     *    modified afterwards.
+     */
+    ShortestPathTree(CompactGraph graph, int source, double[] distance, int[] predecessor, int settledNodes){
+        this.graph = graph;
+        this.source = source;
+        this.distance = distance;
+        this.predecessor = predecessor;
+        this.settledNodes = settledNodes;
+        checkRep();
+    }
+
+    /**
+     * Returns the graph searched.
+     *
+     * @return the graph the routes of this tree are in
+     */
+    public CompactGraph graph(){
+        return graph;
+    }
+
+    /**
+     * Returns the node the routes of this tree start from.
+     *
+     * @return the id of the source node
+     */
+    public int source(){
+        return source;
+    }
+
+    /**
+     * Returns the length of the shortest route from the source to a node.
+     *
+     * @param v the id of the node
+     * @spec.requires 0 <= v < graph().numberOfNodes()
+     * @return the length of the shortest route from source to v, or Double.POSITIVE_INFINITY if v
+     *    can't be reached
+     */
+    public double distance(int v){
+        return distance[v];
+    }
+
+    /**
+     * Returns whether a node can be reached from the source.
+     *
+     * @param v the id of the node
+     * @spec.requires 0 <= v < graph().numberOfNodes()
+     * @return true iff there is a route from source to v
+     */
+    public boolean reaches(int v){
+        return distance[v] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the last edge of the shortest route from the source to a node.
+     *
+     * @param v the id of the node
+     * @spec.requires 0 <= v < graph().numberOfNodes()
+     * @return the id of the last edge of the shortest route from source to v, or -1 if v is the
+     *    source or can't be reached
+     */
+    public int predecessorEdge(int v){
+        return predecessor[v];
+    }
+
+    /**
+     * Returns the number of nodes settled by the search that built this tree.
+     *
+     * @return the number of nodes settled by the search that built this tree
+     */
+    public int getSettledNodes(){
+        return settledNodes;
+    }
+
+    /**
+     * Returns the shortest route from the source to a node.
+     *
+     * @param dest the id of the node
+     * @spec.requires 0 <= dest < graph().numberOfNodes()
+     * @return the shortest route from source to dest, or null if dest can't be reached
+     */
+    public Route route(int dest){
+        if (!reaches(dest)){
+            return null;
+        }
+        int length = 0;
+        for (int v = dest; predecessor[v] != NONE; v = graph.source(predecessor[v])){
+            length++;
+        }
+        int[] nodes = new int[length + 1];
+        int[] edges = new int[length];
+        int v = dest;
+        nodes[length] = dest;
+        for (int i = length; i > 0; i--){
+            edges[i - 1] = predecessor[v];
+            v = graph.source(predecessor[v]);
+            nodes[i - 1] = v;
+        }
+        return new Route(nodes, edges, distance[dest], settledNodes);
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(distance.length == predecessor.length && distance.length == graph.numberOfNodes());
+        assert(distance[source] == 0 && predecessor[source] == NONE);
+    }
+
+}
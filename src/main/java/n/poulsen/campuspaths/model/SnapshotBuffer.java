@@ -0,0 +1,198 @@
+package n.poulsen.campuspaths.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <b>SnapshotBuffer</b> reads or writes the sections of a graph snapshot in a byte buffer, in
+ * little-endian order. Arrays are copied in bulk between the buffer and the heap, and strings are
+ * stored as their length in bytes followed by their UTF-8 encoding. A buffer being written grows
+ * as needed; a buffer being read is typically a memory-mapped file.
+ */
+final class SnapshotBuffer {
+
+    /** The buffer being read or written, positioned at the next value */
+    private ByteBuffer buffer;
+
+    // Representation invariant for every SnapshotBuffer b:
+    //    buffer != null && buffer.order() == ByteOrder.LITTLE_ENDIAN
+
+    /**
+     * @param buffer the buffer to read or write, from its current position
+     * @spec.requires buffer != null
+     * @spec.effects Constructs a new SnapshotBuffer reading or writing buffer
+     */
+    SnapshotBuffer(ByteBuffer buffer){
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the buffer read or written, positioned after the last value.
+     *
+     * @return the underlying buffer, which may have been replaced by a larger one while writing
+     */
+    ByteBuffer buffer(){
+        return buffer;
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param v the value to write
+     * @spec.modifies this
+     */
+    void putInt(int v){
+        reserve(4);
+        buffer.putInt(v);
+    }
+
+    /**
+     * Writes a double.
+     *
+     * @param v the value to write
+     * @spec.modifies this
+     */
+    void putDouble(double v){
+        reserve(8);
+        buffer.putDouble(v);
+    }
+
+    /**
+     * Writes the values of an array, without its length.
+     *
+     * @param a the values to write
+     * @spec.modifies this
+     */
+    void putInts(int[] a){
+        reserve(4L * a.length);
+        buffer.asIntBuffer().put(a);
+        buffer.position(buffer.position() + 4 * a.length);
+    }
+
+    /**
+     * Writes the values of an array, without its length.
+     *
+     * @param a the values to write
+     * @spec.modifies this
+     */
+    void putDoubles(double[] a){
+        reserve(8L * a.length);
+        buffer.asDoubleBuffer().put(a);
+        buffer.position(buffer.position() + 8 * a.length);
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param s the string to write
+     * @spec.modifies this
+     */
+    void putString(String s){
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        reserve(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @return the next int of the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer ends before it
+     */
+    int getInt(){
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads a count, that is a non-negative int no larger than the number of values of the given
+     * size left in the buffer.
+     *
+     * @param bytesPerValue the number of bytes of each counted value
+     * @return the next int of the buffer
+     * @throws IllegalStateException if the count is negative or too large
+     */
+    int getCount(int bytesPerValue){
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * bytesPerValue > buffer.remaining()){
+            throw new IllegalStateException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Reads a double.
+     *
+     * @return the next double of the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer ends before it
+     */
+    double getDouble(){
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads an array of ints.
+     *
+     * @param length the number of values to read
+     * @return a new array of the next length ints of the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer ends before them
+     */
+    int[] getInts(int length){
+        int[] a = new int[length];
+        buffer.asIntBuffer().get(a);
+        buffer.position(buffer.position() + 4 * length);
+        return a;
+    }
+
+    /**
+     * Reads an array of doubles.
+     *
+     * @param length the number of values to read
+     * @return a new array of the next length doubles of the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer ends before them
+     */
+    double[] getDoubles(int length){
+        double[] a = new double[length];
+        buffer.asDoubleBuffer().get(a);
+        buffer.position(buffer.position() + 8 * length);
+        return a;
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @return the next string of the buffer
+     * @throws IllegalStateException if the length of the string is invalid
+     */
+    String getString(){
+        byte[] bytes = new byte[getCount(1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room for a number of bytes after the position of the buffer being written.
+     *
+     * @param bytes the number of bytes about to be written
+     * @spec.modifies this
+     * @throws IllegalStateException if the buffer would grow beyond the size of a byte array
+     */
+    private void reserve(long bytes){
+        if (buffer.remaining() >= bytes){
+            return;
+        }
+        long capacity = Math.max(buffer.position() + bytes, 2L * buffer.capacity());
+        if (capacity > Integer.MAX_VALUE - 8){
+            capacity = buffer.position() + bytes;
+            if (capacity > Integer.MAX_VALUE - 8){
+                throw new IllegalStateException("Snapshot larger than 2 GB");
+            }
+        }
+        ByteBuffer larger = ByteBuffer.allocate((int) capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+}
@@ -0,0 +1,33 @@
+package n.poulsen.campuspaths.publicAPI;
+
+import n.poulsen.campuspaths.service.CampusMapService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Administration API of the application. It only exists when campuspaths.reload.enabled is true,
+ * and unlike PublicApi it isn't open to the UI's origin.
+ */
+@RestController
+@ConditionalOnProperty(name = "campuspaths.reload.enabled", havingValue = "true")
+public class AdminApi {
+
+    /** The Model of CampusPaths, i.e. the map containing all campus buildings and paths */
+    @Autowired
+    private CampusMapService map;
+
+    /**
+     * Reloads the buildings and paths data sets, and the image, without interrupting the requests
+     * served meanwhile
+     *
+     * @return the generation number of the data served once the reload is done
+     */
+    @PostMapping("/reload")
+    public CompletableFuture<Long> reload(){
+        return map.reloadData();
+    }
+
+}
@@ -0,0 +1,56 @@
+package n.poulsen.campuspaths.publicAPI;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <b>DistanceMatrixRequest</b> is the body of a request for a distance matrix: the abbreviated
+ * names of the buildings the paths start at, and of those they end at.
+ */
+public class DistanceMatrixRequest {
+
+    /** The abbreviated names of the buildings the paths start at */
+    private List<String> sources = new ArrayList<>();
+
+    /** The abbreviated names of the buildings the paths end at */
+    private List<String> targets = new ArrayList<>();
+
+    /**
+     * Returns the buildings the paths start at
+     *
+     * @return the abbreviated names of the buildings the paths start at
+     */
+    public List<String> getSources(){
+        return sources;
+    }
+
+    /**
+     * Sets the buildings the paths start at
+     *
+     * @param sources the abbreviated names of the buildings the paths start at
+     * @spec.modifies this
+     */
+    public void setSources(List<String> sources){
+        this.sources = sources;
+    }
+
+    /**
+     * Returns the buildings the paths end at
+     *
+     * @return the abbreviated names of the buildings the paths end at
+     */
+    public List<String> getTargets(){
+        return targets;
+    }
+
+    /**
+     * Sets the buildings the paths end at
+     *
+     * @param targets the abbreviated names of the buildings the paths end at
+     * @spec.modifies this
+     */
+    public void setTargets(List<String> targets){
+        this.targets = targets;
+    }
+
+}
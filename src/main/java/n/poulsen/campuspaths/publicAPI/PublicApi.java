@@ -1,10 +1,18 @@
 package n.poulsen.campuspaths.publicAPI;
 
+import n.poulsen.campuspaths.service.BadRequestException;
 import n.poulsen.campuspaths.service.CampusMapService;
+import n.poulsen.campuspaths.service.RequestCoalescer;
+import n.poulsen.campuspaths.service.RouteCache;
 import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.DistanceMatrix;
+import n.poulsen.campuspaths.model.Route;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * API for the application
  */
@@ -31,11 +39,92 @@ public class PublicApi {
      *
      * @param b1 the building the user starts at
      * @param b2 the building the user ends at
+     * @param algorithm the search used to find the path, DIJKSTRA unless specified
      * @return the shortest path between two b1 and b2
      */
     @GetMapping("/shortestPath")
-    public Iterable<Path> shortestPath(@RequestParam String b1, @RequestParam String b2){
-        return map.shortestPath(b1, b2);
+    public Iterable<Path> shortestPath(@RequestParam String b1, @RequestParam String b2,
+                                       @RequestParam(defaultValue = "DIJKSTRA") RoutingAlgorithm algorithm){
+        return map.shortestPath(b1, b2, algorithm);
+    }
+
+    /**
+     * Returns the shortest path from an arbitrary point, such as the user's location, to a building.
+     * The path starts at the point of the map's paths nearest to (x, y)
+     *
+     * @param x the x coordinate of the point the user starts at
+     * @param y the y coordinate of the point the user starts at
+     * @param b2 the building the user ends at
+     * @param algorithm the search used to find the path, DIJKSTRA unless specified
+     * @return the shortest path from the point nearest to (x, y) to b2
+     */
+    @GetMapping("/shortestPathFromPoint")
+    public Iterable<Path> shortestPathFromPoint(@RequestParam double x, @RequestParam double y, @RequestParam String b2,
+                                                @RequestParam(defaultValue = "DIJKSTRA") RoutingAlgorithm algorithm){
+        return map.shortestPathFromPoint(x, y, b2, algorithm);
+    }
+
+    /**
+     * Returns the length of the shortest path between two buildings, and the number of nodes the
+     * search settled to find it
+     *
+     * @param b1 the building the user starts at
+     * @param b2 the building the user ends at
+     * @param algorithm the search used to find the path, DIJKSTRA unless specified
+     * @return the route found between b1 and b2
+     */
+    @GetMapping("/routeStats")
+    public Route routeStats(@RequestParam String b1, @RequestParam String b2,
+                            @RequestParam(defaultValue = "DIJKSTRA") RoutingAlgorithm algorithm){
+        return map.findRoute(b1, b2, algorithm);
+    }
+
+    /**
+     * Returns the length of the shortest path from a building to every building it is connected
+     * to, all found by one search
+     *
+     * @param b the building the user starts at
+     * @return the distance from b to every building reachable from it, by abbreviated name
+     */
+    @GetMapping("/distancesFrom")
+    public Map<String, Double> distancesFrom(@RequestParam String b){
+        return map.distancesFrom(b);
+    }
+
+    /**
+     * Returns the lengths of the shortest paths from every one of a list of buildings to every one
+     * of another, without the paths themselves, so that the response stays small
+     *
+     * @param request the buildings the paths start at and the buildings they end at
+     * @return the matrix of the distances from every source to every target, with null for the
+     *    targets a source can't reach
+     * @throws BadRequestException if the request has no sources or targets, too many of them, or
+     *    names a building that isn't in the map
+     */
+    @PostMapping("/distanceMatrix")
+    public DistanceMatrix distanceMatrix(@RequestBody DistanceMatrixRequest request) throws BadRequestException{
+        return map.distanceMatrix(request.getSources(), request.getTargets());
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the route cache
+     *
+     * @return the statistics of the route cache
+     */
+    @GetMapping("/routeCacheStats")
+    public RouteCache.Statistics routeCacheStats(){
+        return map.routeCacheStatistics();
+    }
+
+    /**
+     * Returns the number of route computations run, and of requests that shared one with a
+     * concurrent identical request
+     *
+     * @return the statistics of route request coalescing
+     */
+    @GetMapping("/routeCoalescingStats")
+    public RequestCoalescer.Statistics routeCoalescingStats(){
+        return map.routeCoalescingStatistics();
     }
 
     /**
@@ -1,6 +1,7 @@
 package n.poulsen.campuspaths.repository;
 
 import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.GraphSnapshot;
 import n.poulsen.campuspaths.service.ServerSideException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
@@ -11,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import static n.poulsen.campuspaths.model.DataParser.*;
 
 /**
@@ -19,9 +21,6 @@ import static n.poulsen.campuspaths.model.DataParser.*;
 @Repository
 public class DataParserRepository {
 
-    /** The paths that have been parsed by this DataParser */
-    private List<Path> paths;
-
     /** The buildings that have been parsed by this DataParser */
     private List<Building> buildings;
 
@@ -42,20 +41,10 @@ public class DataParserRepository {
 
     /** @spec.effects Constructs a new DataParser that hasn't parsed any data yet */
     public DataParserRepository(){
-        paths = new ArrayList<>();
         buildings = new ArrayList<>();
         image = new byte[0];
     }
 
-    /**
-     * Returns an unmodifiable list of Paths that have been parsed by this DataParser
-     *
-     * @return an unmodifiable list of Paths that have been parsed by this DataParser
-     */
-    public List<Path> getPaths(){
-        return Collections.unmodifiableList(paths);
-    }
-
     /**
      * Returns an unmodifiable list of Buildings that have been parsed by this DataParser
      *
@@ -75,26 +64,65 @@ public class DataParserRepository {
     }
 
     /**
-     * Parses the data contained in the TSV files
+     * Parses the buildings data contained in the TSV file, and the image of the campus map. Paths,
+     * of which there are many more, are not kept in this, but streamed by parsePaths.
      *
-     * @spec.effects loads the tsv data representing paths and buildings into this.
+     * @spec.effects loads the tsv data representing buildings, and the image of the campus map into this.
      * @spec.modifies this
      * @throws ServerSideException if the data could not be parsed
      */
     public void parseData() throws ServerSideException{
         try{
             buildings = parseBuildingData(BUILDINGS_PATH);
-            paths = parsePathData(PATHS_PATH);
             image = parseImage();
         }catch (MalformedDataException e) {
             buildings = new ArrayList<>();
-            paths = new ArrayList<>();
             System.err.println("Could not load data: not in correct format");
             e.printStackTrace(System.err);
             throw new ServerSideException("Could not parse data");
         }
     }
 
+    /**
+     * Parses the paths data contained in the TSV file, passing every path to a consumer in the order
+     * of the file. Parts of the file are parsed in parallel on the common fork-join pool.
+     *
+     * @param consumer the consumer of the paths
+     * @spec.requires consumer != null
+     * @spec.effects calls consumer.accept once for every path in the paths data file
+     * @throws ServerSideException if the data could not be read or parsed
+     */
+    public void parsePaths(PathConsumer consumer) throws ServerSideException{
+        try{
+            streamPathDataInParallel(PATHS_PATH, ForkJoinPool.commonPool(), consumer);
+        }catch (MalformedDataException e) {
+            System.err.println("Could not load data: not in correct format");
+            e.printStackTrace(System.err);
+            throw new ServerSideException("Could not parse data");
+        }catch (IOException e) {
+            System.err.println(e.toString());
+            e.printStackTrace(System.err);
+            throw new ServerSideException("Could not read data");
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the buildings and paths data sets, which changes whenever either
+     * file is replaced or edited
+     *
+     * @return the fingerprint of the data set files, as computed by GraphSnapshot.fingerprint
+     * @throws ServerSideException if the files can't be read
+     */
+    public long dataFingerprint() throws ServerSideException{
+        try{
+            return GraphSnapshot.fingerprint(BUILDINGS_PATH, PATHS_PATH);
+        }catch (IOException e){
+            System.err.println(e.toString());
+            e.printStackTrace(System.err);
+            throw new ServerSideException("Could not read data");
+        }
+    }
+
     /**
      * Parses the image of the campus map
      *
@@ -0,0 +1,23 @@
+package n.poulsen.campuspaths.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request can't be served as made, such as one asking for too much, which is sent
+ * to the UI as a bad request
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends Exception {
+
+    /**
+     * Creates a new BadRequestException
+     *
+     * @param message the message attached to the exception
+     * @spec.effects constructs a new BadRequestException
+     */
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+}
@@ -1,28 +1,91 @@
 package n.poulsen.campuspaths.service;
 
+import n.poulsen.campuspaths.model.BuildingRouteTable;
 import n.poulsen.campuspaths.model.CampusMap;
 import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.Coordinates;
+import n.poulsen.campuspaths.model.DataParser;
+import n.poulsen.campuspaths.model.DistanceMatrix;
+import n.poulsen.campuspaths.model.GraphSnapshot;
+import n.poulsen.campuspaths.model.Route;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
 import n.poulsen.campuspaths.repository.DataParserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Service for the CampusPaths app. Represents a campus map
+ *
+ * The map, the structures derived from it and the image are held together in an immutable
+ * LoadedData, published through a volatile field. Every request reads that field once and works
+ * on the data it got, so reloading the data sets can build the next LoadedData in the background
+ * and swap it in without blocking requests: those already running finish against the old data.
  */
 @Service
 public class CampusMapService {
 
-    /** The CampusMap inside this wrapper */
-    private CampusMap map;
+    /** Logs how long loading and precomputing the data took */
+    private static final Logger LOG = LoggerFactory.getLogger(CampusMapService.class);
 
-    /** A byte array containing the .jpg image of the campus map */
-    private byte[] image;
+    /** The data currently served */
+    private volatile LoadedData data;
+
+    /** Whether routes between all pairs of buildings are computed when the data is loaded */
+    @Value("${campuspaths.routes.precompute:false}")
+    private boolean precomputeRoutes;
+
+    /**
+     * Whether the contraction hierarchy is built when the data is loaded, rather than by the first
+     * request that routes with it
+     */
+    @Value("${campuspaths.routes.prepareHierarchy:false}")
+    private boolean prepareHierarchy;
+
+    /** The maximum number of routes kept in the route cache */
+    @Value("${campuspaths.routes.cacheCapacity:1024}")
+    private int routeCacheCapacity;
+
+    /** The largest number of source, or of target, buildings of a distance matrix request */
+    @Value("${campuspaths.distanceMatrix.maxBuildings:1000}")
+    private int maxMatrixBuildings = 1000;
+
+    /** The file the loaded map is saved to and loaded from at startup, or empty to always parse the data sets */
+    @Value("${campuspaths.snapshot:}")
+    private String snapshotPath = "";
+
+    /**
+     * Shares route computations between concurrent requests for the same pair of buildings in the
+     * same generation of the data
+     */
+    private final RequestCoalescer<List<Object>, List<Path>> routeRequests = new RequestCoalescer<>();
+
+    /** Runs reloads one at a time, away from request threads */
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "campus-data-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** The reload waiting to start, if any, which later reload requests join */
+    private final AtomicReference<CompletableFuture<Long>> pendingReload = new AtomicReference<>();
 
     /** A data parser to use to load data into this */
     @Autowired
@@ -30,8 +93,7 @@ public class CampusMapService {
 
     /** @spec.effects Constructs a new empty campus map service*/
     public CampusMapService(){
-        map = new CampusMap();
-        image = new byte[0];
+        data = new LoadedData(0, GraphSnapshot.NO_FINGERPRINT, new CampusMap(), null, new RouteCache(0), new byte[0]);
     }
 
     /**
@@ -45,16 +107,151 @@ public class CampusMapService {
 
     @PostConstruct
     public void loadData() throws ServerSideException{
+        data = load(data.generation + 1, parser.dataFingerprint(), true);
+    }
+
+    /**
+     * Parses the data sets again, in the background, and then serves the new data instead of the
+     * current one. Requests keep being served from the current data until the new one is ready.
+     * If a reload is requested while another is waiting to start, both are done by the same reload.
+     * If the data sets haven't changed since the current data was loaded from them, the current
+     * data, with its warm route cache, keeps being served instead.
+     *
+     * @spec.modifies this
+     * @spec.effects replaces the buildings, paths and image served by this with those in the data files
+     * @return the future generation number of the data served after the reload, failing with a
+     *    ServerSideException if the data could not be parsed, in which case the current data keeps
+     *    being served
+     */
+    public CompletableFuture<Long> reloadData(){
+        while (true){
+            CompletableFuture<Long> pending = pendingReload.get();
+            if (pending != null){
+                return pending;
+            }
+            CompletableFuture<Long> reload = new CompletableFuture<>();
+            if (pendingReload.compareAndSet(null, reload)){
+                reloader.execute(() -> reload(reload));
+                return reload;
+            }
+        }
+    }
+
+    /**
+     * Loads the next generation of the data and starts serving it
+     *
+     * @param reload the future to complete with the generation number of the data served
+     */
+    private void reload(CompletableFuture<Long> reload){
+        // From now on, requests need another reload to see changes made after this one started
+        pendingReload.compareAndSet(reload, null);
+        try{
+            long start = System.nanoTime();
+            // Taken before parsing, so that data sets edited meanwhile are loaded by the next reload
+            long fingerprint = parser.dataFingerprint();
+            if (fingerprint == data.fingerprint){
+                LOG.info("Campus data sets unchanged, still serving generation {}", data.generation);
+                reload.complete(data.generation);
+                return;
+            }
+            LoadedData next = load(data.generation + 1, fingerprint, false);
+            data = next;
+            LOG.info("Reloaded campus data as generation {} in {} ms", next.generation, (System.nanoTime() - start) / 1000000);
+            reload.complete(next.generation);
+        }catch (ServerSideException | RuntimeException e){
+            LOG.warn("Could not reload campus data, still serving generation {}", data.generation, e);
+            reload.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Returns the generation of the data served, which increases every time the data is reloaded
+     *
+     * @return the generation number of the data served
+     */
+    public long generation(){
+        return data.generation;
+    }
+
+    /**
+     * Parses the data sets, or loads the snapshot, into new data to serve
+     *
+     * @param generation the generation number of the new data
+     * @param fingerprint the fingerprint of the data sets, taken before parsing them so that data
+     *    sets edited meanwhile don't match it
+     * @param fromSnapshot whether the map may be loaded from the snapshot instead of the data sets
+     * @return the loaded data
+     * @throws ServerSideException if the data could not be parsed
+     */
+    private LoadedData load(long generation, long fingerprint, boolean fromSnapshot) throws ServerSideException{
         parser.parseData();
-        List<Building> buildings = parser.getBuildings();
-        List<Path> paths = parser.getPaths();
-        for (Building b: buildings){
-            map.addBuilding(b);
+        CampusMap map = fromSnapshot ? readSnapshot(fingerprint) : null;
+        if (map == null){
+            // The paths are streamed into the map as they are parsed, never all held as objects at once
+            CampusMap.Loader loader = new CampusMap.Loader();
+            for (Building b: parser.getBuildings()){
+                loader.addBuilding(b);
+            }
+            parser.parsePaths(loader);
+            CampusMap parsed = loader.build();
+            // Only built up front if it is saved with the snapshot, or asked for: requests route
+            // with Dijkstra unless they ask for it, and build it themselves if they do
+            if (prepareHierarchy || !snapshotPath.isEmpty()){
+                parsed.prepare(RoutingAlgorithm.CONTRACTION_HIERARCHIES);
+            }
+            writeSnapshot(parsed, fingerprint);
+            map = parsed;
+        }
+        BuildingRouteTable table = null;
+        if (precomputeRoutes){
+            long start = System.nanoTime();
+            table = map.precomputeRoutes();
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            LOG.info("Precomputed routes between {} buildings in {} ms, using about {} KB",
+                    table.numberOfBuildings(), elapsed, table.memoryFootprint() / 1024);
+        }
+        return new LoadedData(generation, fingerprint, map, table, new RouteCache(routeCacheCapacity), parser.getImage());
+    }
+
+    /**
+     * Loads the map from the snapshot file, if one is configured and exists, and was written from
+     * the current data sets
+     *
+     * @param fingerprint the fingerprint of the current data sets
+     * @return the map saved in the snapshot, or null if there is none, it can't be read, or it was
+     *    written from other data sets
+     */
+    private CampusMap readSnapshot(long fingerprint){
+        if (snapshotPath.isEmpty() || !new File(snapshotPath).isFile()){
+            return null;
         }
-        for (Path p: paths){
-            map.addPath(p);
+        try{
+            long start = System.nanoTime();
+            CampusMap snapshot = GraphSnapshot.read(snapshotPath, fingerprint);
+            LOG.info("Loaded campus map from snapshot {} in {} ms", snapshotPath, (System.nanoTime() - start) / 1000000);
+            return snapshot;
+        }catch (DataParser.MalformedDataException | IOException e){
+            LOG.warn("Could not load snapshot {}, parsing data sets instead", snapshotPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves a map to the snapshot file, if one is configured
+     *
+     * @param map the map to save
+     * @param fingerprint the fingerprint of the data sets map was parsed from
+     */
+    private void writeSnapshot(CampusMap map, long fingerprint){
+        if (snapshotPath.isEmpty()){
+            return;
+        }
+        try{
+            GraphSnapshot.write(map, snapshotPath, fingerprint);
+            LOG.info("Saved campus map snapshot to {}", snapshotPath);
+        }catch (IOException e){
+            LOG.warn("Could not save snapshot {}", snapshotPath, e);
         }
-        image = parser.getImage();
     }
 
     /**
@@ -63,6 +260,7 @@ public class CampusMapService {
      * @return the byte array containing the jpg image of the campus map
      */
     public byte[] getImage(){
+        byte[] image = data.image;
         return Arrays.copyOf(image, image.length);
     }
 
@@ -72,7 +270,7 @@ public class CampusMapService {
      * @return a list of all buildings in this map, sorted by short name
      */
     public List<Building> listBuildings(){
-        List<Building> buildings = map.listBuildings();
+        List<Building> buildings = data.map.listBuildings();
         Collections.sort(buildings, Comparator.comparing(Building::getShortName));
         return buildings;
     }
@@ -89,7 +287,184 @@ public class CampusMapService {
      * @return the shortest path between b1 and b2, or null if no path exists or one of the buildings isn't in the map
      */
     public List<Path> shortestPath(String b1, String b2){
-        return map.shortestPath(b1, b2);
+        return shortestPath(b1, b2, RoutingAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Returns the shortest path between two buildings in this campus map, found using the given algorithm
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @param algorithm the search used to find the path
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @spec.requires algorithm != null
+     * @return the shortest path between b1 and b2, or null if no path exists or one of the buildings isn't in the map
+     */
+    public List<Path> shortestPath(String b1, String b2, RoutingAlgorithm algorithm){
+        // The precomputed routes were found with contraction hierarchies, so they only answer
+        // requests for that algorithm: others may pick different paths of the same length
+        LoadedData current = data;
+        if (current.routeTable != null && algorithm == RoutingAlgorithm.CONTRACTION_HIERARCHIES){
+            return current.routeTable.shortestPath(b1, b2);
+        }
+        long version = current.map.version();
+        List<Path> path = current.routeCache.get(b1, b2, algorithm, version);
+        if (path == null){
+            path = routeRequests.execute(Arrays.asList(b1, b2, algorithm, current.generation), () -> {
+                List<Path> computed = current.map.shortestPath(b1, b2, algorithm);
+                // Misses for unknown buildings or unreachable ones aren't cached, so that bad
+                // requests can't evict useful entries
+                if (computed != null){
+                    current.routeCache.put(b1, b2, algorithm, computed, version);
+                }
+                return computed;
+            });
+        }
+        return path;
+    }
+
+    /**
+     * Returns the shortest path from an arbitrary point to a building in this campus map, found
+     * using the given algorithm. The path starts at the point of the map's paths nearest to the
+     * given one, which may be in the middle of a path, and ends at the building's own node.
+     *
+     * @param x the x coordinate of the point at which the path starts
+     * @param y the y coordinate of the point at which the path starts
+     * @param b2 the building at which the path ends abbreviated name
+     * @param algorithm the search used to find the path
+     * @spec.requires b2 != null
+     * @spec.requires algorithm != null
+     * @return the shortest path from the point of the map's paths nearest to (x, y) to b2, or null
+     *    if no path exists or b2 isn't in the map
+     */
+    public List<Path> shortestPathFromPoint(double x, double y, String b2, RoutingAlgorithm algorithm){
+        return data.map.shortestPath(new Coordinates(x, y), b2, algorithm);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the route cache
+     *
+     * @return a snapshot of the route cache's statistics
+     */
+    public RouteCache.Statistics routeCacheStatistics(){
+        return data.routeCache.statistics();
+    }
+
+    /**
+     * Returns how many route computations were run, and how many requests shared another's
+     *
+     * @return a snapshot of the route request coalescing statistics
+     */
+    public RequestCoalescer.Statistics routeCoalescingStatistics(){
+        return routeRequests.statistics();
+    }
+
+    /**
+     * Returns the route found between two buildings by the given algorithm, with its length and the
+     * number of nodes the search settled
+     *
+     * @param b1 the building at which the route starts abbreviated name
+     * @param b2 the building at which the route ends abbreviated name
+     * @param algorithm the search used to find the route
+     * @spec.requires b1 != null
+     * @spec.requires b2 != null
+     * @spec.requires algorithm != null
+     * @return the shortest route between b1 and b2, or null if no path exists or one of the buildings isn't in the map
+     */
+    public Route findRoute(String b1, String b2, RoutingAlgorithm algorithm){
+        return data.map.findRoute(b1, b2, algorithm);
+    }
+
+    /**
+     * Returns the length of the shortest path from a building to every building in this campus
+     * map, found by a single search
+     *
+     * @param b the building at which the paths start abbreviated name
+     * @spec.requires b != null
+     * @return a map from the abbreviated name of every building reachable from b to the length of
+     *    the shortest path to it, sorted by name, or null if b isn't in the map
+     */
+    public SortedMap<String, Double> distancesFrom(String b){
+        return data.map.distancesFrom(b);
+    }
+
+    /**
+     * Returns the lengths of the shortest paths from every one of a list of buildings to every one
+     * of another, without the paths themselves
+     *
+     * @param sources the abbreviated names of the buildings the paths start at
+     * @param targets the abbreviated names of the buildings the paths end at
+     * @spec.requires sources != null && targets != null
+     * @return the matrix of the distances from every building of sources to every building of targets
+     * @throws BadRequestException if sources or targets is null, holds more buildings than allowed,
+     *    or names a building that isn't in the map
+     */
+    public DistanceMatrix distanceMatrix(List<String> sources, List<String> targets) throws BadRequestException{
+        if (sources == null || targets == null){
+            throw new BadRequestException("Both sources and targets must be given");
+        }
+        if (sources.size() > maxMatrixBuildings || targets.size() > maxMatrixBuildings){
+            throw new BadRequestException("A distance matrix can have at most " + maxMatrixBuildings
+                    + " sources and " + maxMatrixBuildings + " targets");
+        }
+        CampusMap map = data.map;
+        Set<String> unknown = new TreeSet<>();
+        for (List<String> names: Arrays.asList(sources, targets)){
+            for (String name: names){
+                if (name == null || !map.contains(name)){
+                    unknown.add(String.valueOf(name));
+                }
+            }
+        }
+        if (!unknown.isEmpty()){
+            throw new BadRequestException("Unknown buildings: " + String.join(", ", unknown));
+        }
+        return map.distanceMatrix(sources, targets);
+    }
+
+    /**
+     * <b>LoadedData</b> is everything served from one load of the data sets. It is never modified
+     * once published, except for the contents of its route cache.
+     */
+    private static final class LoadedData {
+
+        /** The number of times the data sets were loaded, this load included */
+        private final long generation;
+
+        /** The fingerprint of the data sets loaded, or GraphSnapshot.NO_FINGERPRINT if none were */
+        private final long fingerprint;
+
+        /** The campus map */
+        private final CampusMap map;
+
+        /** The shortest routes between all pairs of buildings, or null if they aren't precomputed */
+        private final BuildingRouteTable routeTable;
+
+        /** The most recently requested routes in map */
+        private final RouteCache routeCache;
+
+        /** A byte array containing the .jpg image of the campus map */
+        private final byte[] image;
+
+        /**
+         * @param generation the number of times the data sets were loaded
+         * @param fingerprint the fingerprint of the data sets loaded
+         * @param map the campus map
+         * @param routeTable the precomputed routes of map, or null
+         * @param routeCache the cache of routes of map
+         * @param image the image of the campus map
+         * @spec.effects Constructs a new LoadedData holding the given data
+         */
+        private LoadedData(long generation, long fingerprint, CampusMap map, BuildingRouteTable routeTable, RouteCache routeCache, byte[] image){
+            this.generation = generation;
+            this.fingerprint = fingerprint;
+            this.map = map;
+            this.routeTable = routeTable;
+            this.routeCache = routeCache;
+            this.image = image;
+        }
+
     }
 
 }
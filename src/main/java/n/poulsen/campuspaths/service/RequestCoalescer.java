@@ -0,0 +1,147 @@
+package n.poulsen.campuspaths.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <b>RequestCoalescer</b> makes concurrent requests for the same key share a single computation:
+ * the first request for a key computes the result, and every request for that key arriving
+ * while it does waits for it and receives the same result, instead of computing it again.
+ * Requests arriving after the computation finished start a new one.
+ *
+ * @param <K> the type of the keys identifying identical requests
+ * @param <V> the type of the results
+ */
+public class RequestCoalescer<K, V> {
+
+    /** The computations in progress, by key */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** The number of computations run */
+    private final LongAdder computations = new LongAdder();
+
+    /** The number of requests that waited for another request's computation */
+    private final LongAdder collapsed = new LongAdder();
+
+    // Abstraction function:
+    //    RequestCoalescer c represents the set of keys whose result is being computed, each
+    //    mapped to the eventual result of that computation.
+    //
+    // Representation invariant for every RequestCoalescer c:
+    //    forall (k, f) in inFlight: f is not completed, or is about to be removed by the thread computing it
+
+    /**
+     * Returns the result of computation, sharing it with every other concurrent request for the same key
+     *
+     * @param key identifies requests with the same result
+     * @param computation computes the result
+     * @spec.requires key != null && computation != null
+     * @return the result of the computation run for key, which may be null
+     * @throws RuntimeException if the shared computation threw it
+     */
+    public V execute(K key, Supplier<V> computation){
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null){
+            collapsed.increment();
+            return await(running);
+        }
+        computations.increment();
+        try{
+            V result = computation.get();
+            mine.complete(result);
+            return result;
+        }catch (RuntimeException | Error e){
+            mine.completeExceptionally(e);
+            throw e;
+        }finally{
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Returns a snapshot of this coalescer's counters
+     *
+     * @return the current statistics of this coalescer
+     */
+    public Statistics statistics(){
+        return new Statistics(computations.sum(), collapsed.sum(), inFlight.size());
+    }
+
+    /**
+     * Waits for another request's computation to finish
+     *
+     * @param running the result of the computation
+     * @return the result of the computation
+     * @throws RuntimeException if the computation threw it
+     */
+    private V await(CompletableFuture<V> running){
+        boolean interrupted = false;
+        try{
+            while (true){
+                try{
+                    return running.get();
+                }catch (InterruptedException e){
+                    // The computation is bounded, so the wait is finished and the interrupt restored
+                    interrupted = true;
+                }catch (ExecutionException e){
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }finally{
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * <b>Statistics</b> is an immutable snapshot of the counters of a RequestCoalescer.
+     */
+    public static final class Statistics {
+
+        /** The number of computations run */
+        private final long computations;
+
+        /** The number of requests that waited for another request's computation */
+        private final long collapsed;
+
+        /** The number of computations in progress */
+        private final int inFlight;
+
+        /**
+         * @param computations the number of computations run
+         * @param collapsed the number of requests that waited for another request's computation
+         * @param inFlight the number of computations in progress
+         */
+        private Statistics(long computations, long collapsed, int inFlight){
+            this.computations = computations;
+            this.collapsed = collapsed;
+            this.inFlight = inFlight;
+        }
+
+        /** @return the number of computations run */
+        public long getComputations(){
+            return computations;
+        }
+
+        /** @return the number of requests that waited for another request's computation */
+        public long getCollapsed(){
+            return collapsed;
+        }
+
+        /** @return the number of computations in progress */
+        public int getInFlight(){
+            return inFlight;
+        }
+
+    }
+
+}
@@ -0,0 +1,325 @@
+package n.poulsen.campuspaths.service;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>RouteCache</b> is a thread-safe, size-bounded cache of shortest paths between pairs of
+ * buildings, keyed also by the algorithm that found them, since algorithms may pick different
+ * paths of the same length. Campus paths can be walked both ways, so the path from b2 to b1 is
+ * served by reversing the cached path from b1 to b2, and both directions share a single entry.
+ *
+ * To keep threads from contending on a single lock, the cache is split into segments by the
+ * hash of the pair of buildings, each one holding an equal share of the capacity (give or take
+ * one entry) and evicting its least recently used entry when full. Caches smaller than the usual
+ * number of segments have fewer of them, so that every segment can hold an entry. Every entry records the version of the map it was
+ * computed from, and is ignored once the map has changed.
+ */
+public class RouteCache {
+
+    /** The number of independently locked segments of caches with a capacity of at least as many entries */
+    private static final int SEGMENTS = 16;
+
+    /** The maximum number of entries in this cache */
+    private final int capacity;
+
+    /** The segments of the cache, each a map in least to most recently used order */
+    private final List<LinkedHashMap<Key, Entry>> segments;
+
+    /** The number of segments minus one, which is a mask of the low bits of a hash */
+    private final int segmentMask;
+
+    /** The number of lookups that found a valid entry */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of lookups that didn't */
+    private final LongAdder misses = new LongAdder();
+
+    /** The number of entries removed to make room for new ones */
+    private final LongAdder evictions = new LongAdder();
+
+    // Abstraction function:
+    //    RouteCache c represents the union of the mappings of all of its segments, from unordered
+    //    pairs of buildings and an algorithm to the path between them found by that algorithm
+    //    from a given version of the map.
+    //
+    // Representation invariant for every RouteCache c:
+    //    capacity >= 0 &&
+    //    segments.size() == segmentMask + 1, a power of two of at most max(1, min(capacity, SEGMENTS)) &&
+    //    forall segments i: segments.get(i).size() <= capacity / segments.size() + (i < capacity % segments.size() ? 1 : 0)
+
+    /**
+     * @param capacity the maximum number of entries the cache holds, or 0 to disable it
+     * @spec.requires capacity >= 0
+     * @spec.effects Constructs a new empty cache
+     */
+    public RouteCache(int capacity){
+        this.capacity = capacity;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(capacity, SEGMENTS)));
+        this.segmentMask = count - 1;
+        this.segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            // Splits the capacity exactly, the first segments taking one more entry than the others
+            int perSegment = capacity / count + (i < capacity % count ? 1 : 0);
+            segments.add(new LinkedHashMap<Key, Entry>(16, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest){
+                    if (size() > perSegment){
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the cached path between two buildings, if it was found by the given algorithm from
+     * the given version of the map
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @param algorithm the search the path must have been found with
+     * @param version the current version of the map
+     * @spec.requires b1 != null && b2 != null && algorithm != null
+     * @return the cached path from b1 to b2, or null if there is no valid one
+     */
+    public List<Path> get(String b1, String b2, RoutingAlgorithm algorithm, long version){
+        if (capacity == 0){
+            misses.increment();
+            return null;
+        }
+        Key k = new Key(b1, b2, algorithm);
+        Map<Key, Entry> segment = segmentOf(k);
+        Entry e;
+        synchronized (segment){
+            e = segment.get(k);
+            if (e != null && e.version != version){
+                segment.remove(k);
+                e = null;
+            }
+        }
+        if (e == null){
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return k.reversed ? reverse(e.path) : e.path;
+    }
+
+    /**
+     * Caches the path between two buildings, found by the given algorithm from the given version of the map
+     *
+     * @param b1 the building at which the path starts abbreviated name
+     * @param b2 the building at which the path ends abbreviated name
+     * @param algorithm the search that found path
+     * @param path the shortest path from b1 to b2
+     * @param version the version of the map path was computed from
+     * @spec.requires b1 != null && b2 != null && algorithm != null && path != null
+     * @spec.modifies this
+     * @spec.effects caches path, possibly evicting the least recently used entry of its segment
+     */
+    public void put(String b1, String b2, RoutingAlgorithm algorithm, List<Path> path, long version){
+        if (capacity == 0){
+            return;
+        }
+        Key k = new Key(b1, b2, algorithm);
+        List<Path> stored = Collections.unmodifiableList(k.reversed ? reverse(path) : new ArrayList<>(path));
+        Map<Key, Entry> segment = segmentOf(k);
+        synchronized (segment){
+            segment.put(k, new Entry(stored, version));
+        }
+    }
+
+    /**
+     * Removes every entry from this cache
+     *
+     * @spec.modifies this
+     * @spec.effects empties this cache
+     */
+    public void clear(){
+        for (Map<Key, Entry> segment: segments){
+            synchronized (segment){
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of this cache's counters
+     *
+     * @return the current statistics of this cache
+     */
+    public Statistics statistics(){
+        int size = 0;
+        for (Map<Key, Entry> segment: segments){
+            synchronized (segment){
+                size += segment.size();
+            }
+        }
+        return new Statistics(capacity, size, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Returns the segment responsible for a key
+     *
+     * @param k the key
+     * @return the segment k belongs to
+     */
+    private Map<Key, Entry> segmentOf(Key k){
+        int h = k.hashCode();
+        h ^= h >>> 16;
+        return segments.get(h & segmentMask);
+    }
+
+    /**
+     * Returns the path going the other way
+     *
+     * @param path a path
+     * @return an unmodifiable list with the paths of path in reverse order, each reversed
+     */
+    private static List<Path> reverse(List<Path> path){
+        List<Path> result = new ArrayList<>(path.size());
+        for (int i = path.size() - 1; i >= 0; i--){
+            Path p = path.get(i);
+            result.add(new Path(p.getDestination(), p.getOrigin(), p.getDistance()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * An unordered pair of buildings with the algorithm a path between them is found by, and
+     * whether the order the pair was given in is the reverse of the order in which its cached
+     * path goes.
+     */
+    private static final class Key {
+
+        /** The lesser abbreviated name */
+        private final String first;
+
+        /** The greater abbreviated name */
+        private final String second;
+
+        /** The search the path is found by */
+        private final RoutingAlgorithm algorithm;
+
+        /** Whether the names were given in decreasing order */
+        private final boolean reversed;
+
+        /**
+         * @param b1 an abbreviated name
+         * @param b2 another abbreviated name
+         * @param algorithm the search the path is found by
+         */
+        private Key(String b1, String b2, RoutingAlgorithm algorithm){
+            reversed = b1.compareTo(b2) > 0;
+            first = reversed ? b2 : b1;
+            second = reversed ? b1 : b2;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean equals(Object obj){
+            if (obj instanceof Key){
+                Key k = (Key) obj;
+                return k.first.equals(first) && k.second.equals(second) && k.algorithm == algorithm;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode(){
+            return (31 * first.hashCode() + second.hashCode()) * 31 + algorithm.hashCode();
+        }
+
+    }
+
+    /**
+     * A cached path, from the lesser to the greater building of its key, with the version of the
+     * map it was computed from.
+     */
+    private static final class Entry {
+
+        /** The cached path */
+        private final List<Path> path;
+
+        /** The version of the map the path was computed from */
+        private final long version;
+
+        /**
+         * @param path the cached path
+         * @param version the version of the map the path was computed from
+         */
+        private Entry(List<Path> path, long version){
+            this.path = path;
+            this.version = version;
+        }
+
+    }
+
+    /**
+     * <b>Statistics</b> is an immutable snapshot of the counters of a RouteCache.
+     */
+    public static final class Statistics {
+
+        /** The maximum number of entries in the cache */
+        private final int capacity;
+
+        /** The number of entries in the cache */
+        private final int size;
+
+        /** The number of lookups that found a valid entry */
+        private final long hits;
+
+        /** The number of lookups that didn't */
+        private final long misses;
+
+        /** The number of entries removed to make room for new ones */
+        private final long evictions;
+
+        /**
+         * @param capacity the maximum number of entries in the cache
+         * @param size the number of entries in the cache
+         * @param hits the number of lookups that found a valid entry
+         * @param misses the number of lookups that didn't
+         * @param evictions the number of entries removed to make room for new ones
+         */
+        private Statistics(int capacity, int size, long hits, long misses, long evictions){
+            this.capacity = capacity;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /** @return the maximum number of entries in the cache */
+        public int getCapacity(){
+            return capacity;
+        }
+
+        /** @return the number of entries in the cache */
+        public int getSize(){
+            return size;
+        }
+
+        /** @return the number of lookups that found a valid entry */
+        public long getHits(){
+            return hits;
+        }
+
+        /** @return the number of lookups that didn't find a valid entry */
+        public long getMisses(){
+            return misses;
+        }
+
+        /** @return the number of entries removed to make room for new ones */
+        public long getEvictions(){
+            return evictions;
+        }
+
+    }
+
+}
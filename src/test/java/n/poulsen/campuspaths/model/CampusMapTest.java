@@ -0,0 +1,187 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CampusMapTest {
+
+    @Test
+    public void queriesSeeEarlierModifications() {
+        CampusMap map = new CampusMap();
+        Coordinates a = new Coordinates(0, 0);
+        Coordinates b = new Coordinates(3, 4);
+        map.addBuilding(new Building("A", "Alpha", a));
+        map.addBuilding(new Building("B", "Beta", b));
+        assertNull(map.shortestPath("A", "B"));
+        long version = map.version();
+        map.addPath(new Path(a, b, 5));
+        assertTrue(map.version() > version);
+        assertEquals(1, map.shortestPath("A", "B").size());
+        map.addBuilding(new Building("C", "Gamma", b));
+        assertEquals(5, map.findRoute("A", "C", RoutingAlgorithm.CONTRACTION_HIERARCHIES).getDistance(), 0);
+    }
+
+    @Test
+    public void readersRunWhileWriterAddsPaths() throws Exception {
+        CampusMap map = new CampusMap();
+        int n = 200;
+        map.addBuilding(new Building("START", "Start", new Coordinates(0, 0)));
+        map.addBuilding(new Building("END", "End", new Coordinates(n, 0)));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                try {
+                    List<Path> path;
+                    do {
+                        path = map.shortestPath("START", "END", RoutingAlgorithm.BIDIRECTIONAL);
+                        assertTrue(map.contains("END"));
+                    } while (path == null);
+                    assertEquals(n, path.size());
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            readers[i].start();
+        }
+        for (int i = 0; i < n; i++) {
+            map.addPath(new Path(new Coordinates(i, 0), new Coordinates(i + 1, 0), 1));
+        }
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test(timeout = 10000)
+    public void readersDoNotWaitForWriters() throws Exception {
+        CampusMap map = new CampusMap();
+        Coordinates a = new Coordinates(0, 0);
+        Coordinates b = new Coordinates(3, 4);
+        map.addAll(Arrays.asList(new Building("A", "Alpha", a), new Building("B", "Beta", b)),
+                Arrays.asList(new Path(a, b, 5)));
+        long version = map.version();
+        AtomicReference<List<Path>> seen = new AtomicReference<>();
+        // Holding the lock of the map, as a writer in the middle of a load does
+        synchronized (map) {
+            Thread reader = new Thread(() -> seen.set(map.shortestPath("A", "B")));
+            reader.start();
+            reader.join();
+        }
+        assertEquals(Arrays.asList(new Path(a, b, 5)), seen.get());
+        assertEquals(version, map.version());
+    }
+
+    @Test
+    public void bulkLoadMatchesAddingOneAtATime() {
+        SyntheticCampus campus = SyntheticCampus.randomGeometric(500, 4, 20, 7);
+        CampusMap incremental = new CampusMap();
+        for (Building b : campus.getBuildings()) {
+            incremental.addBuilding(b);
+        }
+        for (Path p : campus.getPaths()) {
+            incremental.addPath(p);
+        }
+        CampusMap bulk = CampusMap.of(campus.getBuildings(), campus.getPaths());
+        assertEquals(incremental.current().graph().numberOfNodes(), bulk.current().graph().numberOfNodes());
+        assertEquals(incremental.current().graph().numberOfEdges(), bulk.current().graph().numberOfEdges());
+        assertEquals(incremental.listBuildings().size(), bulk.listBuildings().size());
+        String from = campus.getBuildings().get(0).getShortName();
+        for (Building b : campus.getBuildings()) {
+            Route expected = incremental.findRoute(from, b.getShortName(), RoutingAlgorithm.DIJKSTRA);
+            Route actual = bulk.findRoute(from, b.getShortName(), RoutingAlgorithm.DIJKSTRA);
+            assertEquals(expected == null, actual == null);
+            if (expected != null) {
+                assertEquals(expected.getDistance(), actual.getDistance(), 1e-9);
+            }
+        }
+        bulk.addPath(new Path(new Coordinates(-1, -1), new Coordinates(-2, -2), 1));
+        assertEquals(incremental.current().graph().numberOfNodes() + 2, bulk.current().graph().numberOfNodes());
+    }
+
+    @Test
+    public void distancesFromMatchSeparateSearches() {
+        CampusMap map = SyntheticCampus.randomGeometric(800, 3, 30, 9).toCampusMap();
+        map.addBuilding(new Building("ISLAND", "Island", new Coordinates(-100, -100)));
+        String from = map.listBuildings().get(0).getShortName();
+        SortedMap<String, Double> distances = map.distancesFrom(from);
+        assertEquals(0, distances.get(from), 0);
+        assertFalse(distances.containsKey("ISLAND"));
+        for (Building b : map.listBuildings()) {
+            Route route = map.findRoute(from, b.getShortName(), RoutingAlgorithm.DIJKSTRA);
+            assertEquals(route == null, !distances.containsKey(b.getShortName()));
+            if (route != null) {
+                assertEquals(route.getDistance(), distances.get(b.getShortName()), 1e-9);
+            }
+        }
+        assertNull(map.distancesFrom("NOWHERE"));
+    }
+
+    @Test
+    public void shortestPathTreeRoutesAreShortest() {
+        CampusMap map = SyntheticCampus.randomGeometric(500, 4, 10, 21).toCampusMap();
+        String from = map.listBuildings().get(0).getShortName();
+        ShortestPathTree tree = map.shortestPathTree(from);
+        CompactGraph g = tree.graph();
+        assertEquals(-1, tree.predecessorEdge(tree.source()));
+        for (int t = 0; t < g.numberOfNodes(); t++) {
+            Route expected = GraphSearch.dijkstra(g, tree.source(), t);
+            Route route = tree.route(t);
+            assertEquals(expected == null, route == null);
+            if (route != null) {
+                assertEquals(expected.getDistance(), route.getDistance(), 1e-9);
+                assertEquals(t, route.node(route.length()));
+                double total = 0;
+                for (int i = 0; i < route.length(); i++) {
+                    total += g.weight(route.edge(i));
+                }
+                assertEquals(route.getDistance(), total, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void distanceMatrixLeavesOutUnreachablePairs() {
+        CampusMap map = new CampusMap();
+        Coordinates a = new Coordinates(0, 0);
+        Coordinates b = new Coordinates(3, 4);
+        map.addBuilding(new Building("A", "Alpha", a));
+        map.addBuilding(new Building("B", "Beta", b));
+        map.addBuilding(new Building("C", "Gamma", new Coordinates(9, 9)));
+        map.addPath(new Path(a, b, 5));
+        DistanceMatrix matrix = map.distanceMatrix(Arrays.asList("A", "C"), Arrays.asList("A", "B", "C"));
+        assertEquals(Arrays.asList("A", "C"), matrix.getSources());
+        assertEquals(5, matrix.distance(0, 1), 0);
+        assertEquals(Double.POSITIVE_INFINITY, matrix.distance(1, 0), 0);
+        assertEquals(Arrays.asList(Arrays.asList(0.0, 5.0, null), Arrays.asList(null, null, 0.0)), matrix.getDistances());
+        assertNull(map.distanceMatrix(Arrays.asList("A"), Arrays.asList("NOWHERE")));
+    }
+
+    @Test
+    public void loaderTakesPathsAsTheyAreParsed() {
+        CampusMap.Loader loader = new CampusMap.Loader();
+        loader.addBuilding(new Building("A", "Alpha", new Coordinates(0, 0)));
+        loader.addBuilding(new Building("B", "Beta", new Coordinates(3, 4)));
+        DataParser.PathConsumer consumer = loader;
+        consumer.accept(0, 0, 3, 0, 3);
+        consumer.accept(3, 0, 3, 4, 4);
+        consumer.accept(3, 0, 3, 4, 4);
+        CampusMap map = loader.build();
+        assertEquals(7, map.findRoute("B", "A", RoutingAlgorithm.DIJKSTRA).getDistance(), 0);
+        assertEquals(4, map.current().graph().numberOfEdges());
+        try {
+            loader.addBuilding(new Building("C", "Gamma", new Coordinates(1, 1)));
+            fail();
+        } catch (IllegalStateException expected) {
+            // The loader can't be used once the map was built
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompactGraphTest {
+
+    private DLMGraph<Coordinates, Double> g;
+
+    private Coordinates a, b, c, d;
+
+    @Before
+    public void setUp() {
+        g = new DLMGraph<>();
+        a = new Coordinates(0, 0);
+        b = new Coordinates(1, 0);
+        c = new Coordinates(1, 1);
+        d = new Coordinates(5, 5);
+        addEdge(a, b, 1.0);
+        addEdge(b, c, 1.0);
+        addEdge(a, c, 3.0);
+        g.addNode(new Node<>(d));
+    }
+
+    private void addEdge(Coordinates from, Coordinates to, double w) {
+        g.addNode(new Node<>(from));
+        g.addNode(new Node<>(to));
+        g.addEdge(new DEdge<>(new Node<>(from), new Node<>(to), w));
+    }
+
+    @Test
+    public void copiesNodesAndEdges() {
+        CompactGraph cg = new CompactGraph(g);
+        assertEquals(4, cg.numberOfNodes());
+        assertEquals(3, cg.numberOfEdges());
+        int ia = cg.id(a);
+        assertEquals(a, cg.coordinates(ia));
+        assertEquals(2, cg.endEdge(ia) - cg.firstEdge(ia));
+        assertEquals(0, cg.endEdge(cg.id(d)) - cg.firstEdge(cg.id(d)));
+        assertEquals(-1, cg.id(new Coordinates(9, 9)));
+        for (int e = cg.firstEdge(ia); e < cg.endEdge(ia); e++) {
+            assertEquals(ia, cg.source(e));
+            assertEquals(cg.target(e) == cg.id(b) ? 1.0 : 3.0, cg.weight(e), 0);
+        }
+        int ic = cg.id(c);
+        assertEquals(2, cg.endInEdge(ic) - cg.firstInEdge(ic));
+        for (int i = cg.firstInEdge(ic); i < cg.endInEdge(ic); i++) {
+            assertEquals(ic, cg.target(cg.inEdge(i)));
+        }
+    }
+
+    @Test
+    public void dijkstraFindsShortestRoute() {
+        CompactGraph cg = new CompactGraph(g);
+        Route r = GraphSearch.dijkstra(cg, cg.id(a), cg.id(c));
+        assertEquals(2, r.length());
+        assertEquals(2.0, r.getDistance(), 0);
+        assertEquals(cg.id(a), r.node(0));
+        assertEquals(cg.id(b), r.node(1));
+        assertEquals(cg.id(c), r.node(2));
+        assertEquals(cg.id(b), cg.source(r.edge(1)));
+        assertNull(GraphSearch.dijkstra(cg, cg.id(a), cg.id(d)));
+        assertEquals(0, GraphSearch.dijkstra(cg, cg.id(d), cg.id(d)).length());
+    }
+
+    @Test
+    public void aStarFindsSameRouteAsDijkstra() {
+        CompactGraph cg = new CompactGraph(g);
+        assertEquals(1.0, cg.heuristicScale(), 1e-6);
+        Route r = GraphSearch.aStar(cg, cg.id(a), cg.id(c));
+        assertEquals(GraphSearch.dijkstra(cg, cg.id(a), cg.id(c)).getDistance(), r.getDistance(), 0);
+        assertEquals(cg.id(b), r.node(1));
+        assertTrue(r.getSettledNodes() > 0);
+        assertNull(GraphSearch.aStar(cg, cg.id(a), cg.id(d)));
+    }
+
+    @Test
+    public void bidirectionalFindsSameRouteAsDijkstra() {
+        CompactGraph cg = new CompactGraph(g);
+        Route r = GraphSearch.bidirectional(cg, cg.id(a), cg.id(c));
+        assertEquals(2.0, r.getDistance(), 0);
+        assertEquals(cg.id(a), r.node(0));
+        assertEquals(cg.id(b), r.node(1));
+        assertEquals(cg.id(c), r.node(2));
+        assertEquals(cg.id(c), cg.target(r.edge(1)));
+        assertNull(GraphSearch.bidirectional(cg, cg.id(c), cg.id(a)));
+        assertNull(GraphSearch.bidirectional(cg, cg.id(a), cg.id(d)));
+        assertEquals(0, GraphSearch.bidirectional(cg, cg.id(b), cg.id(b)).length());
+    }
+
+}
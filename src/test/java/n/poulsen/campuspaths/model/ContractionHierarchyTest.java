@@ -0,0 +1,98 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContractionHierarchyTest {
+
+    /** Builds a size x size grid with random weights, in both directions, and a few missing edges */
+    private static CompactGraph grid(int size, long seed) {
+        Random r = new Random(seed);
+        DLMGraph<Coordinates, Double> g = new DLMGraph<>();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                g.addNode(new Node<>(new Coordinates(x, y)));
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                Node<Coordinates> n = new Node<>(new Coordinates(x, y));
+                if (x + 1 < size && r.nextInt(10) > 0) {
+                    addBoth(g, n, new Node<>(new Coordinates(x + 1, y)), 1 + r.nextDouble());
+                }
+                if (y + 1 < size && r.nextInt(10) > 0) {
+                    addBoth(g, n, new Node<>(new Coordinates(x, y + 1)), 1 + r.nextDouble());
+                }
+            }
+        }
+        return new CompactGraph(g);
+    }
+
+    private static void addBoth(DLMGraph<Coordinates, Double> g, Node<Coordinates> a, Node<Coordinates> b, double w) {
+        g.addEdge(new DEdge<>(a, b, w));
+        g.addEdge(new DEdge<>(b, a, w));
+    }
+
+    @Test
+    public void routesMatchDijkstra() {
+        CompactGraph g = grid(20, 7);
+        ContractionHierarchy h = new ContractionHierarchy(g);
+        Random r = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            int s = r.nextInt(g.numberOfNodes());
+            int t = r.nextInt(g.numberOfNodes());
+            Route expected = GraphSearch.dijkstra(g, s, t);
+            Route actual = h.route(s, t);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            assertEquals(expected.getDistance(), actual.getDistance(), 1e-9);
+            assertEquals(s, actual.node(0));
+            assertEquals(t, actual.node(actual.length()));
+            double sum = 0;
+            for (int k = 0; k < actual.length(); k++) {
+                assertEquals(actual.node(k), g.source(actual.edge(k)));
+                assertEquals(actual.node(k + 1), g.target(actual.edge(k)));
+                sum += g.weight(actual.edge(k));
+            }
+            assertEquals(expected.getDistance(), sum, 1e-9);
+        }
+    }
+
+    @Test
+    public void routeToItselfIsEmpty() {
+        CompactGraph g = grid(3, 1);
+        assertEquals(0, new ContractionHierarchy(g).route(4, 4).length());
+    }
+
+    @Test
+    public void distanceMatrixMatchesShortestPathTrees() {
+        CompactGraph g = grid(20, 11);
+        ContractionHierarchy h = new ContractionHierarchy(g);
+        Random r = new Random(5);
+        int[] sources = new int[15];
+        int[] targets = new int[25];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = r.nextInt(g.numberOfNodes());
+        }
+        for (int j = 0; j < targets.length; j++) {
+            targets[j] = r.nextInt(g.numberOfNodes());
+        }
+        targets[0] = sources[0];
+        double[] distances = h.distances(sources, targets);
+        assertEquals(sources.length * targets.length, distances.length);
+        for (int i = 0; i < sources.length; i++) {
+            ShortestPathTree tree = GraphSearch.shortestPathTree(g, sources[i]);
+            for (int j = 0; j < targets.length; j++) {
+                assertEquals(tree.distance(targets[j]), distances[i * targets.length + j], 1e-9);
+            }
+        }
+        assertEquals(0, distances[0], 0);
+    }
+
+}
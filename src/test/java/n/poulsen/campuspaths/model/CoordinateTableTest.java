@@ -0,0 +1,55 @@
+package n.poulsen.campuspaths.model;
+
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CoordinateTableTest {
+
+    @Test
+    public void findsPairsByPosition() {
+        CoordinateTable table = new CoordinateTable(new double[]{1.5, 2}, new double[]{2, 1.5});
+        assertEquals(2, table.size());
+        assertEquals(0, table.id(1.5, 2));
+        assertEquals(1, table.id(2, 1.5));
+        assertEquals(-1, table.id(1.5, 1.5));
+        assertEquals(2, table.x(1), 0);
+        assertEquals(1.5, table.y(1), 0);
+    }
+
+    @Test
+    public void treatsZeroesAsTheSameCoordinate() {
+        CoordinateTable table = new CoordinateTable(new double[]{0.0, Double.NaN}, new double[]{-0.0, 1});
+        assertEquals(0, table.id(-0.0, 0.0));
+        assertEquals(0, table.id(0.0, 0.0));
+        assertEquals(1, table.id(Double.NaN, 1));
+    }
+
+    @Test
+    public void findsEveryPairOfALargeTable() {
+        Set<Coordinates> pairs = new LinkedHashSet<>();
+        Random random = new Random(17);
+        while (pairs.size() < 50000) {
+            // Few distinct values, so that many hashes collide
+            pairs.add(new Coordinates(random.nextInt(500) * 0.1, random.nextInt(500) * 0.1));
+        }
+        double[] xs = new double[pairs.size()];
+        double[] ys = new double[pairs.size()];
+        int i = 0;
+        for (Coordinates c : pairs) {
+            xs[i] = c.getX();
+            ys[i] = c.getY();
+            i++;
+        }
+        CoordinateTable table = new CoordinateTable(xs, ys);
+        for (i = 0; i < xs.length; i++) {
+            assertEquals(i, table.id(xs[i], ys[i]));
+        }
+        assertEquals(-1, table.id(50, 50));
+    }
+
+}
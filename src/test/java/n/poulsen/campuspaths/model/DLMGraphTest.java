@@ -0,0 +1,169 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.DLMGraph.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DLMGraphTest {
+
+    private DLMGraph<String, Double> g;
+
+    private Node<String> a, b, c, d, e;
+
+    @Before
+    public void setUp() {
+        g = new DLMGraph<>();
+        a = new Node<>("a");
+        b = new Node<>("b");
+        c = new Node<>("c");
+        d = new Node<>("d");
+        e = new Node<>("e");
+        for (Node<String> n: Arrays.asList(a, b, c, d, e)) {
+            g.addNode(n);
+        }
+        g.addEdge(new DEdge<>(a, b, 1.0));
+        g.addEdge(new DEdge<>(b, c, 1.0));
+        g.addEdge(new DEdge<>(a, c, 3.0));
+        g.addEdge(new DEdge<>(c, d, 1.0));
+        g.addEdge(new DEdge<>(a, d, 5.0));
+    }
+
+    @Test
+    public void dijkstraFindsShortestPath() {
+        List<DEdge<String, Double>> path = DLMGraph.dijkstra(g, a, d);
+        assertEquals(Arrays.asList(new DEdge<>(a, b, 1.0), new DEdge<>(b, c, 1.0), new DEdge<>(c, d, 1.0)), path);
+    }
+
+    @Test
+    public void dijkstraFromNodeToItselfIsEmpty() {
+        assertTrue(DLMGraph.dijkstra(g, b, b).isEmpty());
+    }
+
+    @Test
+    public void dijkstraReturnsNullWhenUnreachable() {
+        assertNull(DLMGraph.dijkstra(g, a, e));
+        assertNull(DLMGraph.dijkstra(g, d, a));
+    }
+
+    @Test
+    public void dijkstraReturnsNullForMissingNode() {
+        assertNull(DLMGraph.dijkstra(g, a, new Node<>("z")));
+    }
+
+    @Test
+    public void reverseEdgesHashDifferently() {
+        Node<Coordinates> p = new Node<>(new Coordinates(1, 2));
+        Node<Coordinates> q = new Node<>(new Coordinates(3, 4));
+        assertNotEquals(new DEdge<>(p, q, 1.0).hashCode(), new DEdge<>(q, p, 1.0).hashCode());
+        assertEquals(new DEdge<>(p, q, 1.0).hashCode(), new DEdge<>(new Node<>(new Coordinates(1, 2)), q, 1.0).hashCode());
+    }
+
+    @Test
+    public void equalCoordinatesHashAlike() {
+        assertEquals(new Coordinates(0.0, 1), new Coordinates(-0.0, 1));
+        assertEquals(new Coordinates(0.0, 1).hashCode(), new Coordinates(-0.0, 1).hashCode());
+        assertNotEquals(new Coordinates(1, 2).hashCode(), new Coordinates(2, 1).hashCode());
+    }
+
+    @Test
+    public void outEdgesViewIsReadOnlyAndLive() {
+        Set<DEdge<String, Double>> view = g.outEdgesView(a);
+        assertEquals(g.outEdges(a), view);
+        try {
+            view.clear();
+            fail("The view should not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+            // The graph is left untouched
+        }
+        g.addEdge(new DEdge<>(a, e, 2.0));
+        assertTrue(view.contains(new DEdge<>(a, e, 2.0)));
+        assertTrue(g.outEdgesView(new Node<>("z")).isEmpty());
+    }
+
+    @Test
+    public void forEachOutEdgeVisitsEveryOutEdge() {
+        Set<DEdge<String, Double>> visited = new HashSet<>();
+        g.forEachOutEdge(a, visited::add);
+        assertEquals(g.outEdges(a), visited);
+        g.forEachOutEdge(new Node<>("z"), edge -> fail());
+    }
+
+    @Test
+    public void reverseIndexAgreesWithScanningThroughEdits() {
+        DLMGraph<Integer, Double> plain = new DLMGraph<>();
+        DLMGraph<Integer, Double> indexed = new DLMGraph<>(true);
+        assertFalse(plain.hasReverseIndex());
+        assertTrue(indexed.hasReverseIndex());
+        Random random = new Random(3);
+        for (int step = 0; step < 3000; step++) {
+            Node<Integer> u = new Node<>(random.nextInt(40));
+            Node<Integer> v = new Node<>(random.nextInt(40));
+            int op = random.nextInt(10);
+            if (op < 2) {
+                assertEquals(plain.removeNode(u), indexed.removeNode(u));
+            } else if (op < 4 && plain.contains(u) && !plain.outEdges(u).isEmpty()) {
+                DEdge<Integer, Double> edge = plain.outEdges(u).iterator().next();
+                assertEquals(plain.removeEdge(edge), indexed.removeEdge(edge));
+            } else {
+                plain.addNode(u);
+                indexed.addNode(u);
+                plain.addNode(v);
+                indexed.addNode(v);
+                DEdge<Integer, Double> edge = new DEdge<>(u, v, (double) random.nextInt(3));
+                assertEquals(plain.addEdge(edge), indexed.addEdge(edge));
+            }
+            assertEquals(plain.parents(v), indexed.parents(v));
+            assertEquals(plain.inEdges(v), indexed.inEdges(v));
+        }
+        assertEquals(plain, indexed);
+        for (Node<Integer> n : plain.getNodes()) {
+            assertEquals(plain.parents(n), indexed.parents(n));
+            assertEquals(plain.inEdges(n), indexed.inEdges(n));
+        }
+    }
+
+    @Test
+    public void removingNodeWithSelfLoopUsingReverseIndex() {
+        DLMGraph<String, Double> indexed = new DLMGraph<>(true);
+        indexed.addNode(a);
+        indexed.addNode(b);
+        indexed.addEdge(new DEdge<>(a, a, 1.0));
+        indexed.addEdge(new DEdge<>(a, b, 1.0));
+        indexed.addEdge(new DEdge<>(b, a, 1.0));
+        assertEquals(new HashSet<>(Arrays.asList(a, b)), indexed.parents(a));
+        assertTrue(indexed.removeNode(a));
+        assertEquals(0, indexed.numberOfEdges());
+        assertTrue(indexed.inEdges(b).isEmpty());
+        assertTrue(indexed.parents(b).isEmpty());
+    }
+
+    @Test
+    public void builderMatchesAddingOneAtATime() {
+        DLMGraph.Builder<String, Double> builder = new DLMGraph.Builder<>(5, 5, true);
+        builder.addNode(e);
+        for (DEdge<String, Double> edge : g.getEdges()) {
+            builder.addEdge(edge);
+            builder.addEdge(new DEdge<>(edge.getParentNode(), edge.getChildNode(), edge.getLabel()));
+        }
+        DLMGraph<String, Double> built = builder.build();
+        assertEquals(g, built);
+        assertEquals(g.numberOfEdges(), built.numberOfEdges());
+        assertTrue(built.hasReverseIndex());
+        assertEquals(g.inEdges(c), built.inEdges(c));
+        try {
+            builder.addNode(a);
+            fail();
+        } catch (IllegalStateException expected) {
+            // The builder can't be used once the graph was built
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class DataParserTest {
+
+    private static File write(String contents) throws Exception {
+        File f = File.createTempFile("paths", ".tsv");
+        f.deleteOnExit();
+        Files.write(f.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+        return f;
+    }
+
+    @Test
+    public void streamedPathsMatchBundledData() throws Exception {
+        List<Path> streamed = new ArrayList<>();
+        DataParser.streamPathData("data/campus_paths.tsv", (ox, oy, dx, dy, d) ->
+                streamed.add(new Path(new Coordinates(ox, oy), new Coordinates(dx, dy), d)));
+        List<Path> expected = new ArrayList<>();
+        for (String line : Files.readAllLines(new File("data/campus_paths.tsv").toPath())) {
+            if (expected.isEmpty() && line.startsWith("origin")) {
+                expected.add(null);
+                continue;
+            }
+            String[] tokens = line.split("\t");
+            expected.add(new Path(DataParser.parseCoordinates(tokens[0]), DataParser.parseCoordinates(tokens[1]),
+                    Double.parseDouble(tokens[2])));
+        }
+        assertEquals(expected.subList(1, expected.size()), streamed);
+    }
+
+    @Test
+    public void parsesUncommonNumbersAndSkipsComments() throws Exception {
+        File f = write("origin\tdestination\tdistance\r\n"
+                + "# a comment\r\n"
+                + "-1.5,+2\t1e3,0.1234567890123456789\t12345678901234567890\r\n"
+                + "0,0\t.5,7.\t0.000000000000000000000000123");
+        List<Path> paths = DataParser.parsePathData(f.getPath());
+        assertEquals(2, paths.size());
+        assertEquals(new Path(new Coordinates(-1.5, 2), new Coordinates(1000, 0.1234567890123456789), 12345678901234567890.0),
+                paths.get(0));
+        assertEquals(new Path(new Coordinates(0, 0), new Coordinates(0.5, 7), 1.23e-25), paths.get(1));
+    }
+
+    @Test(expected = DataParser.MalformedDataException.class)
+    public void rejectsMissingTab() throws Exception {
+        DataParser.parsePathData(write("header\n1,2\t3,4 5\n").getPath());
+    }
+
+    @Test(expected = DataParser.MalformedDataException.class)
+    public void rejectsBadCoordinates() throws Exception {
+        DataParser.parsePathData(write("header\n1,2,3\t3,4\t5\n").getPath());
+    }
+
+    @Test(expected = DataParser.MalformedDataException.class)
+    public void rejectsNonPositiveDistance() throws Exception {
+        DataParser.parsePathData(write("header\n1,2\t3,4\t0\n").getPath());
+    }
+
+    @Test
+    public void parallelStreamKeepsFileOrder() throws Exception {
+        File paths = File.createTempFile("paths", ".tsv");
+        File buildings = File.createTempFile("buildings", ".tsv");
+        paths.deleteOnExit();
+        buildings.deleteOnExit();
+        SyntheticCampus.grid(200, 200, 0, 5).write(paths.getPath(), buildings.getPath());
+        // With one thread, fewer chunks are in flight than the file is split into
+        for (int parallelism : new int[]{1, 4}) {
+            List<Path> parallel = new ArrayList<>();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                DataParser.streamPathDataInParallel(paths.getPath(), pool, (ox, oy, dx, dy, d) ->
+                        parallel.add(new Path(new Coordinates(ox, oy), new Coordinates(dx, dy), d)));
+            } finally {
+                pool.shutdown();
+            }
+            assertEquals(DataParser.parsePathData(paths.getPath()), parallel);
+        }
+    }
+
+    @Test
+    public void parallelStreamReportsMalformedLine() throws Exception {
+        File f = write("header\n1,2\t3,4\t5\n1,2\t3,4\n");
+        List<Path> parsed = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            DataParser.streamPathDataInParallel(f.getPath(), pool, (ox, oy, dx, dy, d) ->
+                    parsed.add(new Path(new Coordinates(ox, oy), new Coordinates(dx, dy), d)));
+            fail();
+        } catch (DataParser.MalformedDataException e) {
+            assertEquals(1, parsed.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GraphSnapshotTest {
+
+    private CampusMap map;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        map = new CampusMap();
+        map.loadBuildingData("data/campus_buildings.tsv");
+        map.loadPathData("data/campus_paths.tsv");
+        file = File.createTempFile("campus", ".snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void loadedMapRoutesLikeOriginal() throws Exception {
+        map.prepare(RoutingAlgorithm.CONTRACTION_HIERARCHIES);
+        GraphSnapshot.write(map, file.getPath());
+        CampusMap loaded = GraphSnapshot.read(file.getPath());
+        assertEquals(map.listBuildings().size(), loaded.listBuildings().size());
+        List<Building> buildings = map.listBuildings();
+        for (Building b1 : buildings) {
+            assertEquals(b1, loaded.getBuilding(b1.getShortName()));
+            for (Building b2 : buildings.subList(0, 10)) {
+                List<Path> expected = map.shortestPath(b1.getShortName(), b2.getShortName());
+                assertEquals(expected, loaded.shortestPath(b1.getShortName(), b2.getShortName()));
+                assertEquals(expected, loaded.shortestPath(b1.getShortName(), b2.getShortName(),
+                        RoutingAlgorithm.CONTRACTION_HIERARCHIES));
+            }
+        }
+    }
+
+    @Test
+    public void loadedMapCanBeModified() throws Exception {
+        GraphSnapshot.write(map, file.getPath());
+        CampusMap loaded = GraphSnapshot.read(file.getPath());
+        Coordinates far = new Coordinates(-100, -100);
+        Building b = map.listBuildings().get(0);
+        loaded.addBuilding(new Building("FAR", "Far away", far));
+        assertNull(loaded.shortestPath(b.getShortName(), "FAR"));
+        loaded.addPath(new Path(b.getLocation(), far, 10));
+        assertEquals(1, loaded.shortestPath(b.getShortName(), "FAR").size());
+        assertEquals(map.shortestPath(b.getShortName(), map.listBuildings().get(1).getShortName()),
+                loaded.shortestPath(b.getShortName(), map.listBuildings().get(1).getShortName()));
+    }
+
+    @Test(expected = DataParser.MalformedDataException.class)
+    public void rejectsCorruptSnapshot() throws Exception {
+        GraphSnapshot.write(map, file.getPath());
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.seek(f.length() / 2);
+            int b = f.read();
+            f.seek(f.length() / 2);
+            f.write(b ^ 1);
+        }
+        GraphSnapshot.read(file.getPath());
+    }
+
+    @Test(expected = DataParser.MalformedDataException.class)
+    public void rejectsOtherFiles() throws Exception {
+        GraphSnapshot.read("data/campus_paths.tsv");
+    }
+
+    @Test
+    public void rejectsSnapshotOfOtherDataSets() throws Exception {
+        File data = File.createTempFile("paths", ".tsv");
+        try {
+            long fingerprint = GraphSnapshot.fingerprint(data.getPath());
+            GraphSnapshot.write(map, file.getPath(), fingerprint);
+            assertNotNull(GraphSnapshot.read(file.getPath(), fingerprint));
+            try (FileWriter w = new FileWriter(data, true)) {
+                w.write("header\n");
+            }
+            assertNotEquals(fingerprint, GraphSnapshot.fingerprint(data.getPath()));
+            try {
+                GraphSnapshot.read(file.getPath(), GraphSnapshot.fingerprint(data.getPath()));
+                fail();
+            } catch (DataParser.MalformedDataException expected) {
+                // The data sets changed since the snapshot was written
+            }
+            assertNotNull(GraphSnapshot.read(file.getPath()));
+        } finally {
+            data.delete();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package n.poulsen.campuspaths.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IndexedMinHeapTest {
+
+    @Test
+    public void pollsInPriorityOrder() {
+        Random r = new Random(42);
+        int n = 1000;
+        double[] keys = new double[n];
+        IndexedMinHeap h = new IndexedMinHeap(n);
+        for (int i = 0; i < n; i++) {
+            keys[i] = r.nextDouble();
+            h.offer(i, keys[i]);
+        }
+        double[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < n; i++) {
+            assertEquals(sorted[i], h.peekKey(), 0);
+            assertEquals(sorted[i], keys[h.poll()], 0);
+        }
+        assertTrue(h.isEmpty());
+    }
+
+    @Test
+    public void offerDecreasesKeyWithoutDuplicating() {
+        IndexedMinHeap h = new IndexedMinHeap(3);
+        assertTrue(h.offer(0, 5));
+        assertTrue(h.offer(1, 3));
+        assertTrue(h.offer(0, 1));
+        assertFalse(h.offer(1, 4));
+        assertEquals(2, h.size());
+        assertEquals(0, h.poll());
+        assertFalse(h.contains(0));
+        assertEquals(1, h.poll());
+        assertTrue(h.isEmpty());
+    }
+
+    @Test
+    public void clearEmptiesHeap() {
+        IndexedMinHeap h = new IndexedMinHeap(4);
+        h.offer(2, 1);
+        h.offer(3, 2);
+        h.clear();
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(2));
+        assertTrue(h.offer(2, 7));
+        assertEquals(2, h.peek());
+    }
+
+}
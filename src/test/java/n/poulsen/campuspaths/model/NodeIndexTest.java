@@ -0,0 +1,95 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NodeIndexTest {
+
+    private static double squaredDistance(CompactGraph g, int u, double x, double y) {
+        double dx = g.x(u) - x;
+        double dy = g.y(u) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static void assertMatchesLinearScan(CompactGraph g, long seed) {
+        NodeIndex index = new NodeIndex(g);
+        Random random = new Random(seed);
+        double extent = SyntheticCampus.SPACING * Math.sqrt(g.numberOfNodes());
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * extent * 1.2 - extent * 0.1;
+            double y = random.nextDouble() * extent * 1.2 - extent * 0.1;
+            double[] distances = new double[g.numberOfNodes()];
+            for (int u = 0; u < distances.length; u++) {
+                distances[u] = squaredDistance(g, u, x, y);
+            }
+            Arrays.sort(distances);
+
+            int[] nearest = index.nearest(x, y, 10);
+            assertEquals(10, nearest.length);
+            for (int i = 0; i < nearest.length; i++) {
+                assertEquals(distances[i], squaredDistance(g, nearest[i], x, y), 0);
+            }
+            assertEquals(distances[0], squaredDistance(g, index.nearest(x, y), x, y), 0);
+
+            double radius = SyntheticCampus.SPACING * 3;
+            int[] within = index.within(x, y, radius);
+            int expected = 0;
+            while (expected < distances.length && distances[expected] <= radius * radius) {
+                expected++;
+            }
+            assertEquals(expected, within.length);
+            for (int u : within) {
+                assertTrue(squaredDistance(g, u, x, y) <= radius * radius);
+            }
+            assertEquals(within.length, Arrays.stream(within).distinct().count());
+        }
+    }
+
+    @Test
+    public void matchesLinearScanOnRandomCampus() {
+        CampusMap map = SyntheticCampus.randomGeometric(3000, 4, 10, 7).toCampusMap();
+        assertMatchesLinearScan(map.current().graph(), 1);
+    }
+
+    @Test
+    public void matchesLinearScanOnGridWithTiedCoordinates() {
+        CampusMap map = SyntheticCampus.grid(40, 40, 10, 7).toCampusMap();
+        assertMatchesLinearScan(map.current().graph(), 2);
+    }
+
+    @Test
+    public void emptyGraphHasNoNearestNode() {
+        NodeIndex index = new NodeIndex(new CampusMap().current().graph());
+        assertEquals(-1, index.nearest(0, 0));
+        assertEquals(0, index.nearest(0, 0, 3).length);
+        assertEquals(0, index.within(0, 0, 100).length);
+    }
+
+    @Test
+    public void asksForMoreNodesThanExist() {
+        CampusMap map = new CampusMap();
+        map.addPath(new Path(new Coordinates(0, 0), new Coordinates(3, 4), 5));
+        int[] nearest = new NodeIndex(map.current().graph()).nearest(0, 1, 5);
+        assertEquals(2, nearest.length);
+        assertEquals(new Coordinates(0, 0), map.current().graph().coordinates(nearest[0]));
+    }
+
+    @Test
+    public void findsNodesNearPoints() {
+        CampusMap map = new CampusMap();
+        Coordinates a = new Coordinates(0, 0);
+        Coordinates b = new Coordinates(10, 0);
+        Coordinates c = new Coordinates(10, 10);
+        map.addPath(new Path(a, b, 10));
+        map.addPath(new Path(b, c, 10));
+        assertEquals(Arrays.asList(b, c), map.nearestNodes(new Coordinates(10, 4), 2));
+        assertEquals(1, map.nodesWithin(new Coordinates(0, 1), 2).size());
+        assertEquals(3, map.nodesWithin(new Coordinates(5, 5), 10).size());
+    }
+
+}
@@ -0,0 +1,140 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentIndexTest {
+
+    private CampusMap map;
+
+    private Coordinates a, b, c;
+
+    @Before
+    public void setUp() {
+        map = new CampusMap();
+        a = new Coordinates(0, 0);
+        b = new Coordinates(10, 0);
+        c = new Coordinates(10, 10);
+        map.addPath(new Path(a, b, 10));
+        map.addPath(new Path(b, c, 10));
+    }
+
+    private static double distanceToSegment(CompactGraph g, int e, double x, double y) {
+        double ux = g.x(g.source(e)), uy = g.y(g.source(e));
+        double dx = g.x(g.target(e)) - ux, dy = g.y(g.target(e)) - uy;
+        double t = Math.max(0, Math.min(1, ((x - ux) * dx + (y - uy) * dy) / (dx * dx + dy * dy)));
+        return Math.hypot(ux + t * dx - x, uy + t * dy - y);
+    }
+
+    private static double length(List<Path> path) {
+        double total = 0;
+        for (Path p : path) {
+            total += p.getDistance();
+        }
+        return total;
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        CompactGraph g = SyntheticCampus.randomGeometric(2000, 4, 10, 3).toCampusMap().current().graph();
+        SegmentIndex index = new SegmentIndex(g);
+        Random random = new Random(5);
+        double extent = SyntheticCampus.SPACING * Math.sqrt(g.numberOfNodes());
+        for (int q = 0; q < 300; q++) {
+            double x = random.nextDouble() * extent * 1.4 - extent * 0.2;
+            double y = random.nextDouble() * extent * 1.4 - extent * 0.2;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int e = 0; e < g.numberOfEdges(); e++) {
+                expected = Math.min(expected, distanceToSegment(g, e, x, y));
+            }
+            EdgeSnap snap = index.nearest(x, y);
+            assertEquals(expected, snap.distance(), 1e-9);
+            assertEquals(snap.distance(), distanceToSegment(g, snap.edge(), x, y), 1e-9);
+        }
+    }
+
+    @Test
+    public void graphWithoutEdgesHasNoSegments() {
+        CampusMap empty = new CampusMap();
+        empty.addBuilding(new Building("A", "A", a));
+        assertNull(new SegmentIndex(empty.current().graph()).nearest(0, 0));
+        assertNull(empty.shortestPath(a, b, RoutingAlgorithm.DIJKSTRA));
+    }
+
+    @Test
+    public void routesFromTheMiddleOfPaths() {
+        Coordinates start = new Coordinates(4, 0);
+        Coordinates end = new Coordinates(10, 7);
+        List<Path> expected = Arrays.asList(new Path(start, b, 6), new Path(b, end, 7));
+        for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+            assertEquals(expected, map.shortestPath(new Coordinates(4, 1), new Coordinates(11, 7), algorithm));
+        }
+        assertEquals(3, map.current().graph().numberOfNodes());
+    }
+
+    @Test
+    public void staysOnTheSamePathWhenShorter() {
+        Coordinates p = new Coordinates(2, 0);
+        Coordinates q = new Coordinates(7, 0);
+        List<Path> forward = map.shortestPath(new Coordinates(2, 1), new Coordinates(7, -1), RoutingAlgorithm.DIJKSTRA);
+        assertEquals(1, forward.size());
+        assertEquals(p, forward.get(0).getOrigin());
+        assertEquals(q, forward.get(0).getDestination());
+        assertEquals(5, forward.get(0).getDistance(), 1e-9);
+        List<Path> backward = map.shortestPath(new Coordinates(7, -1), new Coordinates(2, 1), RoutingAlgorithm.CONTRACTION_HIERARCHIES);
+        assertEquals(1, backward.size());
+        assertEquals(q, backward.get(0).getOrigin());
+        assertEquals(5, backward.get(0).getDistance(), 1e-9);
+        assertEquals(Collections.emptyList(), map.shortestPath(p, p, RoutingAlgorithm.ASTAR));
+    }
+
+    @Test
+    public void startsAtNodesWithoutPartialPaths() {
+        assertEquals(Arrays.asList(new Path(a, b, 10), new Path(b, c, 10)),
+                map.shortestPath(new Coordinates(-1, -1), new Coordinates(11, 11), RoutingAlgorithm.BIDIRECTIONAL));
+    }
+
+    @Test
+    public void algorithmsAgreeOnRandomCampus() {
+        CampusMap random = SyntheticCampus.randomGeometric(1500, 4, 10, 11).toCampusMap();
+        Random points = new Random(13);
+        double extent = SyntheticCampus.SPACING * Math.sqrt(1500);
+        for (int q = 0; q < 50; q++) {
+            Coordinates from = new Coordinates(points.nextDouble() * extent, points.nextDouble() * extent);
+            Coordinates to = new Coordinates(points.nextDouble() * extent, points.nextDouble() * extent);
+            List<Path> reference = random.shortestPath(from, to, RoutingAlgorithm.DIJKSTRA);
+            for (RoutingAlgorithm algorithm : RoutingAlgorithm.values()) {
+                List<Path> path = random.shortestPath(from, to, algorithm);
+                if (reference == null) {
+                    assertNull(path);
+                    continue;
+                }
+                assertEquals(length(reference), length(path), 1e-6);
+                for (int i = 1; i < path.size(); i++) {
+                    assertEquals(path.get(i - 1).getDestination(), path.get(i).getOrigin());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void routesFromPointsToTheBuildingItself() {
+        map.addBuilding(new Building("C", "Gamma", c));
+        map.addBuilding(new Building("LONE", "Lone", new Coordinates(10, 5)));
+        Coordinates start = new Coordinates(4, 0);
+        List<Path> path = map.shortestPath(new Coordinates(4, 1), "C", RoutingAlgorithm.CONTRACTION_HIERARCHIES);
+        assertEquals(Arrays.asList(new Path(start, b, 6), new Path(b, c, 10)), path);
+        // Right next to the path from b to c, but not on it: no path leads to it
+        assertNull(map.shortestPath(new Coordinates(4, 1), "LONE", RoutingAlgorithm.DIJKSTRA));
+        assertNull(map.shortestPath(new Coordinates(4, 1), "NOWHERE", RoutingAlgorithm.DIJKSTRA));
+    }
+
+}
@@ -0,0 +1,367 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * <b>SyntheticCampus</b> is a generated set of paths and buildings, used to measure how parsing,
+ * building and querying a CampusMap scale with the size of the campus. Campuses are generated
+ * in one of three topologies:
+ *   - grid: nodes on a square lattice, each connected to its horizontal and vertical neighbours
+ *   - random geometric: nodes scattered uniformly at random, connected to every node within a
+ *     radius chosen for a given average degree
+ *   - tiled: copies of a real campus laid side by side, joined by paths between neighbouring copies
+ *
+ * Every path is listed once; CampusMap adds both directions of each path. Generated path distances
+ * are never shorter than the straight-line distance between their ends. Generation is deterministic
+ * for a given seed, and a campus can be written to TSV files that DataParser reads back.
+ *
+ * It is test and benchmark tooling, shared by the tests and, through the test classpath, by the
+ * benchmarks; it isn't part of the application.
+ *
+ * <b>Specification fields</b>:
+ *   @spec.specfield paths: the paths of this campus
+ *   @spec.specfield buildings: the buildings of this campus
+ *
+ * <b>Abstract invariant</b>:
+ *   No two buildings have the same abbreviated name.
+ */
+public final class SyntheticCampus {
+
+    /** The distance between neighbouring nodes of a grid, and the mean one of a random geometric campus */
+    public static final double SPACING = 20;
+
+    /** The header line of a paths TSV file */
+    private static final String PATHS_HEADER = "origin\tdestination\tdistance";
+
+    /** The header line of a buildings TSV file */
+    private static final String BUILDINGS_HEADER = "short_name\tlongName\tx\ty";
+
+    /** The paths of this campus */
+    private final List<Path> paths;
+
+    /** The buildings of this campus */
+    private final List<Building> buildings;
+
+    // Abstraction function:
+    //    SyntheticCampus c represents the campus with the paths in c.paths and the buildings in c.buildings.
+    //
+    // Representation invariant for every SyntheticCampus c:
+    //    paths != null && buildings != null &&
+    //    no two elements of buildings have the same short name
+
+    /**
+     * @param paths the paths of the campus
+     * @param buildings the buildings of the campus
+     * @spec.requires paths != null && buildings != null
+     * @spec.effects Constructs a new SyntheticCampus with the given paths and buildings
+     */
+    private SyntheticCampus(List<Path> paths, List<Building> buildings){
+        this.paths = Collections.unmodifiableList(paths);
+        this.buildings = Collections.unmodifiableList(buildings);
+        checkRep();
+    }
+
+    /**
+     * Generates a grid campus.
+     *
+     * @param columns the number of nodes in every row of the grid
+     * @param rows the number of nodes in every column of the grid
+     * @param buildings the number of buildings to place on nodes of the grid
+     * @param seed the seed of the random choices
+     * @spec.requires columns > 0 && rows > 0 && 0 <= buildings <= columns * rows
+     * @return a campus with columns * rows nodes SPACING apart, about 2 * columns * rows paths,
+     *    and buildings buildings on distinct nodes
+     */
+    public static SyntheticCampus grid(int columns, int rows, int buildings, long seed){
+        Random random = new Random(seed);
+        Coordinates[] nodes = new Coordinates[columns * rows];
+        for (int r = 0; r < rows; r++){
+            for (int c = 0; c < columns; c++){
+                nodes[r * columns + c] = new Coordinates(c * SPACING, r * SPACING);
+            }
+        }
+        List<Path> paths = new ArrayList<>(2 * nodes.length);
+        for (int r = 0; r < rows; r++){
+            for (int c = 0; c < columns; c++){
+                Coordinates n = nodes[r * columns + c];
+                if (c + 1 < columns){
+                    paths.add(path(n, nodes[r * columns + c + 1], random));
+                }
+                if (r + 1 < rows){
+                    paths.add(path(n, nodes[(r + 1) * columns + c], random));
+                }
+            }
+        }
+        return new SyntheticCampus(paths, placeBuildings(nodes, buildings, random));
+    }
+
+    /**
+     * Generates a random geometric campus, on a square sized so that nodes are on average SPACING
+     * apart.
+     *
+     * @param nodes the number of nodes of the campus
+     * @param averageDegree the expected number of paths at every node
+     * @param buildings the number of buildings to place on nodes of the campus
+     * @param seed the seed of the random choices
+     * @spec.requires nodes > 0 && averageDegree > 0 && 0 <= buildings <= nodes
+     * @return a campus with nodes nodes, paths between every two nodes close enough that each has
+     *    about averageDegree paths, and buildings buildings on distinct nodes. The campus may not
+     *    be connected, mostly when averageDegree is small.
+     */
+    public static SyntheticCampus randomGeometric(int nodes, double averageDegree, int buildings, long seed){
+        Random random = new Random(seed);
+        double side = Math.sqrt(nodes) * SPACING;
+        // With nodes / side^2 nodes per unit of area, a disc of this radius holds averageDegree of them
+        double radius = SPACING * Math.sqrt(averageDegree / Math.PI);
+        int cells = Math.max(1, (int) (side / radius));
+        double cellSize = side / cells;
+        Coordinates[] points = new Coordinates[nodes];
+        List<List<Integer>> grid = new ArrayList<>(cells * cells);
+        for (int i = 0; i < cells * cells; i++){
+            grid.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes; i++){
+            points[i] = new Coordinates(random.nextDouble() * side, random.nextDouble() * side);
+            grid.get(cell(points[i].getY(), cellSize, cells) * cells + cell(points[i].getX(), cellSize, cells)).add(i);
+        }
+        List<Path> paths = new ArrayList<>((int) (nodes * averageDegree / 2));
+        // Cells are at least radius wide, so the nodes close enough to a node are all in its own
+        // cell or in one of the eight around it
+        for (int i = 0; i < nodes; i++){
+            Coordinates p = points[i];
+            int cx = cell(p.getX(), cellSize, cells);
+            int cy = cell(p.getY(), cellSize, cells);
+            for (int y = Math.max(0, cy - 1); y <= Math.min(cells - 1, cy + 1); y++){
+                for (int x = Math.max(0, cx - 1); x <= Math.min(cells - 1, cx + 1); x++){
+                    for (int j: grid.get(y * cells + x)){
+                        if (j > i && distance(p, points[j]) <= radius && distance(p, points[j]) > 0){
+                            paths.add(path(p, points[j], random));
+                        }
+                    }
+                }
+            }
+        }
+        return new SyntheticCampus(paths, placeBuildings(points, buildings, random));
+    }
+
+    /**
+     * Generates a campus made of copies of a real one. Copies are laid out in a grid, each shifted
+     * by the size of the real campus plus a gap, and every copy is joined to the copies right and
+     * below it by a path from its outermost node on that side to the facing node of the other copy.
+     * Buildings keep their names, followed by the column and row of their copy.
+     *
+     * @param paths the paths of the real campus
+     * @param buildings the buildings of the real campus
+     * @param columns the number of copies in every row
+     * @param rows the number of copies in every column
+     * @spec.requires paths != null && !paths.isEmpty() && buildings != null && columns > 0 && rows > 0
+     * @return a campus with columns * rows copies of the given one
+     */
+    public static SyntheticCampus tiled(List<Path> paths, List<Building> buildings, int columns, int rows){
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (Path p: paths){
+            for (Coordinates c: Arrays.asList(p.getOrigin(), p.getDestination())){
+                minX = Math.min(minX, c.getX());
+                minY = Math.min(minY, c.getY());
+                maxX = Math.max(maxX, c.getX());
+                maxY = Math.max(maxY, c.getY());
+            }
+        }
+        double width = maxX - minX + SPACING;
+        double height = maxY - minY + SPACING;
+        // Joining paths are as long, relative to the straight line, as the shortest real path is,
+        // so they don't change how distances compare to straight-line lengths
+        double scale = Double.POSITIVE_INFINITY;
+        for (Path p: paths){
+            double length = distance(p.getOrigin(), p.getDestination());
+            if (length > 0){
+                scale = Math.min(scale, p.getDistance() / length);
+            }
+        }
+        if (scale == Double.POSITIVE_INFINITY){
+            scale = 1;
+        }
+        // The nodes facing each neighbouring copy: rightmost, leftmost, lowest and highest
+        Coordinates right = null, left = null, bottom = null, top = null;
+        for (Path p: paths){
+            for (Coordinates c: Arrays.asList(p.getOrigin(), p.getDestination())){
+                if (right == null || c.getX() > right.getX()) right = c;
+                if (left == null || c.getX() < left.getX()) left = c;
+                if (bottom == null || c.getY() > bottom.getY()) bottom = c;
+                if (top == null || c.getY() < top.getY()) top = c;
+            }
+        }
+        List<Path> tiledPaths = new ArrayList<>(paths.size() * columns * rows + 2 * columns * rows);
+        List<Building> tiledBuildings = new ArrayList<>(buildings.size() * columns * rows);
+        for (int r = 0; r < rows; r++){
+            for (int c = 0; c < columns; c++){
+                double dx = c * width, dy = r * height;
+                for (Path p: paths){
+                    tiledPaths.add(new Path(shift(p.getOrigin(), dx, dy), shift(p.getDestination(), dx, dy), p.getDistance()));
+                }
+                for (Building b: buildings){
+                    String suffix = " " + c + "." + r;
+                    tiledBuildings.add(new Building(b.getShortName() + suffix, b.getLongName() + suffix, shift(b.getLocation(), dx, dy)));
+                }
+                if (c + 1 < columns){
+                    Coordinates from = shift(right, dx, dy), to = shift(left, dx + width, dy);
+                    tiledPaths.add(new Path(from, to, distance(from, to) * scale));
+                }
+                if (r + 1 < rows){
+                    Coordinates from = shift(bottom, dx, dy), to = shift(top, dx, dy + height);
+                    tiledPaths.add(new Path(from, to, distance(from, to) * scale));
+                }
+            }
+        }
+        return new SyntheticCampus(tiledPaths, tiledBuildings);
+    }
+
+    /**
+     * Returns the paths of this campus.
+     *
+     * @return an unmodifiable list of the paths of this campus
+     */
+    public List<Path> getPaths(){
+        return paths;
+    }
+
+    /**
+     * Returns the buildings of this campus.
+     *
+     * @return an unmodifiable list of the buildings of this campus
+     */
+    public List<Building> getBuildings(){
+        return buildings;
+    }
+
+    /**
+     * Builds a CampusMap of this campus.
+     *
+     * @return a new CampusMap with the buildings and paths of this campus
+     */
+    public CampusMap toCampusMap(){
+        return CampusMap.of(buildings, paths);
+    }
+
+    /**
+     * Writes this campus to TSV files in the format read by DataParser.
+     *
+     * @param pathsFile the file to write the paths to
+     * @param buildingsFile the file to write the buildings to
+     * @spec.requires pathsFile != null && buildingsFile != null
+     * @spec.modifies the files named pathsFile and buildingsFile
+     * @spec.effects Replaces the contents of pathsFile and buildingsFile with the paths and buildings of this campus
+     * @throws IOException if either file can't be written
+     */
+    public void write(String pathsFile, String buildingsFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(pathsFile), Charset.defaultCharset())){
+            writer.write(PATHS_HEADER);
+            writer.newLine();
+            for (Path p: paths){
+                writer.write(format(p.getOrigin()) + "\t" + format(p.getDestination()) + "\t" + p.getDistance());
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(buildingsFile), Charset.defaultCharset())){
+            writer.write(BUILDINGS_HEADER);
+            writer.newLine();
+            for (Building b: buildings){
+                Coordinates c = b.getLocation();
+                writer.write(b.getShortName() + "\t" + b.getLongName() + "\t" + c.getX() + "\t" + c.getY());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Creates a path between two points, whose distance is up to 20% longer than the straight line.
+     *
+     * @param from the origin of the path
+     * @param to the destination of the path
+     * @param random the source of the detour length
+     * @return a path from from to to
+     */
+    private static Path path(Coordinates from, Coordinates to, Random random){
+        return new Path(from, to, distance(from, to) * (1 + 0.2 * random.nextDouble()));
+    }
+
+    /**
+     * Places buildings on distinct, randomly chosen nodes.
+     *
+     * @param nodes the nodes buildings can be placed on
+     * @param count the number of buildings to place
+     * @param random the source of the choices
+     * @return count buildings named B0, B1, ...
+     */
+    private static List<Building> placeBuildings(Coordinates[] nodes, int count, Random random){
+        Coordinates[] shuffled = nodes.clone();
+        List<Building> buildings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            int j = i + random.nextInt(shuffled.length - i);
+            Coordinates chosen = shuffled[j];
+            shuffled[j] = shuffled[i];
+            shuffled[i] = chosen;
+            buildings.add(new Building("B" + i, "Building " + i, chosen));
+        }
+        return buildings;
+    }
+
+    /**
+     * Returns the cell of a grid of cells that holds a coordinate.
+     *
+     * @param v the coordinate
+     * @param cellSize the width of every cell
+     * @param cells the number of cells
+     * @return the index of the cell holding v
+     */
+    private static int cell(double v, double cellSize, int cells){
+        return Math.min(cells - 1, (int) (v / cellSize));
+    }
+
+    /**
+     * Returns the straight-line distance between two points.
+     *
+     * @param a the first point
+     * @param b the second point
+     * @return the Euclidean distance between a and b
+     */
+    private static double distance(Coordinates a, Coordinates b){
+        return Math.hypot(a.getX() - b.getX(), a.getY() - b.getY());
+    }
+
+    /**
+     * Translates a point.
+     *
+     * @param c the point
+     * @param dx the distance to move it along the x axis
+     * @param dy the distance to move it along the y axis
+     * @return the point at c + (dx, dy)
+     */
+    private static Coordinates shift(Coordinates c, double dx, double dy){
+        return new Coordinates(c.getX() + dx, c.getY() + dy);
+    }
+
+    /**
+     * Formats coordinates the way DataParser reads them.
+     *
+     * @param c the coordinates
+     * @return the x and y values of c, separated by a comma
+     */
+    private static String format(Coordinates c){
+        return c.getX() + "," + c.getY();
+    }
+
+    /** Checks that the representation invariant holds (if any). */
+    private void checkRep(){
+        assert(paths != null);
+        assert(buildings != null);
+    }
+
+}
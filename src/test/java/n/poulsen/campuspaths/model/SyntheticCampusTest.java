@@ -0,0 +1,71 @@
+package n.poulsen.campuspaths.model;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SyntheticCampusTest {
+
+    @Test
+    public void gridHasLatticePaths() {
+        SyntheticCampus campus = SyntheticCampus.grid(10, 5, 8, 1);
+        assertEquals(9 * 5 + 10 * 4, campus.getPaths().size());
+        assertEquals(8, campus.getBuildings().size());
+        for (Path p : campus.getPaths()) {
+            double length = Math.hypot(p.getOrigin().getX() - p.getDestination().getX(),
+                    p.getOrigin().getY() - p.getDestination().getY());
+            assertEquals(SyntheticCampus.SPACING, length, 1e-9);
+            assertTrue(p.getDistance() >= length);
+        }
+        CampusMap map = campus.toCampusMap();
+        assertNotNull(map.shortestPath("B0", "B7"));
+    }
+
+    @Test
+    public void sameSeedGeneratesSameCampus() {
+        SyntheticCampus a = SyntheticCampus.randomGeometric(500, 6, 10, 7);
+        SyntheticCampus b = SyntheticCampus.randomGeometric(500, 6, 10, 7);
+        assertEquals(a.getPaths(), b.getPaths());
+        assertEquals(a.getBuildings(), b.getBuildings());
+        double degree = 2.0 * a.getPaths().size() / 500;
+        assertTrue(degree > 3 && degree < 9);
+    }
+
+    @Test
+    public void tiledCampusIsConnected() throws Exception {
+        List<Path> paths = DataParser.parsePathData("data/campus_paths.tsv");
+        List<Building> buildings = DataParser.parseBuildingData("data/campus_buildings.tsv");
+        SyntheticCampus campus = SyntheticCampus.tiled(paths, buildings, 3, 2);
+        assertEquals(6 * paths.size() + 2 * 2 + 3, campus.getPaths().size());
+        assertEquals(6 * buildings.size(), campus.getBuildings().size());
+        CampusMap map = campus.toCampusMap();
+        String first = buildings.get(0).getShortName();
+        assertNotNull(map.shortestPath(first + " 0.0", first + " 2.1"));
+    }
+
+    @Test
+    public void writtenFilesParseBack() throws Exception {
+        SyntheticCampus campus = SyntheticCampus.randomGeometric(200, 5, 20, 3);
+        File paths = File.createTempFile("paths", ".tsv");
+        File buildings = File.createTempFile("buildings", ".tsv");
+        try {
+            campus.write(paths.getPath(), buildings.getPath());
+            assertEquals(campus.getPaths(), DataParser.parsePathData(paths.getPath()));
+            assertEquals(campus.getBuildings(), DataParser.parseBuildingData(buildings.getPath()));
+            Set<String> names = new HashSet<>();
+            for (Building b : campus.getBuildings()) {
+                assertTrue(names.add(b.getShortName()));
+            }
+        } finally {
+            paths.delete();
+            buildings.delete();
+        }
+    }
+
+}
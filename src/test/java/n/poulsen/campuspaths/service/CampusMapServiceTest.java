@@ -0,0 +1,125 @@
+package n.poulsen.campuspaths.service;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.RoutingAlgorithm;
+import n.poulsen.campuspaths.repository.DataParserRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class CampusMapServiceTest {
+
+    private CampusMapService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new CampusMapService();
+        Field parser = CampusMapService.class.getDeclaredField("parser");
+        parser.setAccessible(true);
+        parser.set(service, new DataParserRepository());
+        service.loadData();
+    }
+
+    @Test
+    public void reloadServesNewGeneration() throws Exception {
+        assertEquals(1, service.generation());
+        List<Building> buildings = service.listBuildings();
+        String b1 = buildings.get(0).getShortName();
+        String b2 = buildings.get(buildings.size() - 1).getShortName();
+        List<Path> before = service.shortestPath(b1, b2);
+        assertNotNull(before);
+        java.nio.file.Path paths = Paths.get("data/campus_paths.tsv");
+        FileTime modified = Files.getLastModifiedTime(paths);
+        try {
+            Files.setLastModifiedTime(paths, FileTime.fromMillis(modified.toMillis() + 60000));
+            CompletableFuture<Long> reload = service.reloadData();
+            assertEquals(2L, (long) reload.get());
+        } finally {
+            Files.setLastModifiedTime(paths, modified);
+        }
+        assertEquals(2, service.generation());
+        assertEquals(before, service.shortestPath(b1, b2));
+        assertEquals(buildings, service.listBuildings());
+    }
+
+    @Test
+    public void reloadOfUnchangedDataKeepsServingIt() throws Exception {
+        Field capacity = CampusMapService.class.getDeclaredField("routeCacheCapacity");
+        capacity.setAccessible(true);
+        capacity.set(service, 16);
+        service.loadData();
+        List<Building> buildings = service.listBuildings();
+        String b1 = buildings.get(0).getShortName();
+        String b2 = buildings.get(buildings.size() - 1).getShortName();
+        service.shortestPath(b1, b2);
+        assertEquals(2L, (long) service.reloadData().get());
+        assertEquals(2, service.generation());
+        service.shortestPath(b1, b2);
+        assertEquals(1, service.routeCacheStatistics().getHits());
+    }
+
+    @Test
+    public void precomputedRoutesOnlyAnswerTheirAlgorithm() throws Exception {
+        Field precompute = CampusMapService.class.getDeclaredField("precomputeRoutes");
+        precompute.setAccessible(true);
+        precompute.set(service, true);
+        service.loadData();
+        List<Building> buildings = service.listBuildings();
+        String b1 = buildings.get(0).getShortName();
+        String b2 = buildings.get(buildings.size() - 1).getShortName();
+        List<Path> table = service.shortestPath(b1, b2, RoutingAlgorithm.CONTRACTION_HIERARCHIES);
+        assertEquals(0, service.routeCacheStatistics().getMisses());
+        List<Path> searched = service.shortestPath(b1, b2, RoutingAlgorithm.DIJKSTRA);
+        assertEquals(1, service.routeCacheStatistics().getMisses());
+        assertEquals(length(searched), length(table), 1e-9);
+    }
+
+    @Test
+    public void distanceMatrixRejectsOversizedRequests() throws Exception {
+        String b = service.listBuildings().get(0).getShortName();
+        assertEquals(0, service.distanceMatrix(Arrays.asList(b), Arrays.asList(b)).distance(0, 0), 0);
+        List<String> many = Collections.nCopies(50000, b);
+        try {
+            service.distanceMatrix(many, many);
+            fail();
+        } catch (BadRequestException expected) {
+            // Rejected before anything is allocated for it
+        }
+        try {
+            service.distanceMatrix(null, Arrays.asList(b));
+            fail();
+        } catch (BadRequestException expected) {
+            // Both lists are required
+        }
+    }
+
+    @Test
+    public void distanceMatrixRejectsUnknownBuildings() throws Exception {
+        String b = service.listBuildings().get(0).getShortName();
+        try {
+            service.distanceMatrix(Arrays.asList(b, "NOWHERE"), Arrays.asList("ELSEWHERE", b));
+            fail();
+        } catch (BadRequestException expected) {
+            assertEquals("Unknown buildings: ELSEWHERE, NOWHERE", expected.getMessage());
+        }
+    }
+
+    private static double length(List<Path> path) {
+        double length = 0;
+        for (Path p : path) {
+            length += p.getDistance();
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,67 @@
+package n.poulsen.campuspaths.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void concurrentRequestsShareOneComputation() throws Exception {
+        RequestCoalescer<String, Object> coalescer = new RequestCoalescer<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> coalescer.execute("k", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return result;
+            })));
+            while (coalescer.statistics().getInFlight() == 0) {
+                Thread.sleep(1);
+            }
+            for (int i = 0; i < 5; i++) {
+                futures.add(pool.submit(() -> coalescer.execute("k", () -> new Object())));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (coalescer.statistics().getCollapsed() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> f: futures) {
+                assertSame(result, f.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        RequestCoalescer.Statistics stats = coalescer.statistics();
+        assertEquals(1, stats.getComputations());
+        assertEquals(5, stats.getCollapsed());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    public void sequentialRequestsComputeAgain() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+        assertEquals(Integer.valueOf(1), coalescer.execute("k", () -> 1));
+        assertEquals(Integer.valueOf(2), coalescer.execute("k", () -> 2));
+        assertEquals(2, coalescer.statistics().getComputations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failuresAreRethrown() {
+        new RequestCoalescer<String, Integer>().execute("k", () -> {
+            throw new IllegalArgumentException();
+        });
+    }
+
+}
@@ -0,0 +1,86 @@
+package n.poulsen.campuspaths.service;
+
+import n.poulsen.campuspaths.model.CampusMap.*;
+import n.poulsen.campuspaths.model.Coordinates;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static n.poulsen.campuspaths.model.RoutingAlgorithm.*;
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+
+    private static final Coordinates A = new Coordinates(0, 0);
+    private static final Coordinates B = new Coordinates(1, 0);
+    private static final Coordinates C = new Coordinates(1, 1);
+
+    private static final List<Path> A_TO_C = Arrays.asList(new Path(A, B, 1), new Path(B, C, 2));
+
+    @Test
+    public void servesBothDirections() {
+        RouteCache cache = new RouteCache(16);
+        assertNull(cache.get("A", "C", DIJKSTRA, 0));
+        cache.put("A", "C", DIJKSTRA, A_TO_C, 0);
+        assertEquals(A_TO_C, cache.get("A", "C", DIJKSTRA, 0));
+        assertEquals(Arrays.asList(new Path(C, B, 2), new Path(B, A, 1)), cache.get("C", "A", DIJKSTRA, 0));
+        RouteCache.Statistics stats = cache.statistics();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void keepsPathsOfEachAlgorithmApart() {
+        RouteCache cache = new RouteCache(16);
+        cache.put("A", "C", DIJKSTRA, A_TO_C, 0);
+        assertNull(cache.get("A", "C", ASTAR, 0));
+        assertNull(cache.get("C", "A", CONTRACTION_HIERARCHIES, 0));
+        cache.put("C", "A", ASTAR, Arrays.asList(new Path(C, A, 3)), 0);
+        assertEquals(Arrays.asList(new Path(A, C, 3)), cache.get("A", "C", ASTAR, 0));
+        assertEquals(A_TO_C, cache.get("A", "C", DIJKSTRA, 0));
+        assertEquals(2, cache.statistics().getSize());
+    }
+
+    @Test
+    public void ignoresEntriesFromOtherVersions() {
+        RouteCache cache = new RouteCache(16);
+        cache.put("A", "C", DIJKSTRA, A_TO_C, 0);
+        assertNull(cache.get("A", "C", DIJKSTRA, 1));
+        assertEquals(0, cache.statistics().getSize());
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        RouteCache cache = new RouteCache(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("A", "B" + i, DIJKSTRA, A_TO_C, 0);
+        }
+        RouteCache.Statistics stats = cache.statistics();
+        assertTrue(stats.getSize() <= 16);
+        assertEquals(1000 - stats.getSize(), stats.getEvictions());
+    }
+
+    @Test
+    public void neverHoldsMoreThanCapacity() {
+        for (int capacity : new int[]{1, 3, 15, 17, 100}) {
+            RouteCache cache = new RouteCache(capacity);
+            for (int i = 0; i < 1000; i++) {
+                cache.put("A", "B" + i, DIJKSTRA, A_TO_C, 0);
+                assertTrue(cache.statistics().getSize() <= capacity);
+            }
+        }
+        RouteCache single = new RouteCache(1);
+        single.put("A", "C", DIJKSTRA, A_TO_C, 0);
+        assertEquals(A_TO_C, single.get("A", "C", DIJKSTRA, 0));
+    }
+
+    @Test
+    public void zeroCapacityDisablesCache() {
+        RouteCache cache = new RouteCache(0);
+        cache.put("A", "C", DIJKSTRA, A_TO_C, 0);
+        assertNull(cache.get("A", "C", DIJKSTRA, 0));
+    }
+
+}